@@ -0,0 +1,513 @@
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * 邻接表：单词 -> (后继单词 -> 权值)，记录修改次数.
+ * 对外层或内层Map的任何写操作（put、merge、clear、迭代器remove、Entry.setValue等）都使修改次数加一，
+ * GraphProcessor据此判断索引快照是否过期.
+ * 放入的内层Map被复制成行，之后修改原Map不影响本对象.
+ * 每条边保存为一个Cell，外层每行有一个固定的Entry，entrySet等视图直接返回它们，只读遍历不创建对象.
+ * 同时维护反向表：终点 -> (起点 -> Cell)，与正向表共用Cell，权值变化无需另行更新；
+ * 增删边的写操作同步增删反向表中的项，入度和前驱的查询不需要重建任何索引.
+ */
+final class AdjacencyMap extends AbstractMap<String, Map<String, Integer>> {
+  //Row、RowEntry和Cell都含3个引用（包括外部对象），各自占用的字节数
+  static final long OBJECT_BYTES =
+      GraphStatistics.align(GraphStatistics.OBJECT_HEADER + 3L * GraphStatistics.REFERENCE);
+
+  private final Map<String, Row> rows = new HashMap<>();
+  private final Map<String, Map<String, Cell>> in = new HashMap<>();
+  private long modCount;
+
+  /**
+   * 修改次数，每次写操作后增加.
+   *
+   * @return 修改次数
+   */
+  long modCount() {
+    return modCount;
+  }
+
+  /**
+   * 边权值加一，起点不存在时先加入.
+   *
+   * @param from 起点
+   * @param to   终点
+   */
+  void increment(String from, String to) {
+    modCount++;
+    Row row = rows.get(from);
+    if (row == null) {
+      row = new Row(from);
+      rows.put(from, row);
+    }
+    Cell cell = row.cells.get(to);
+    if (cell == null) {
+      cell = new Cell(to, 1);
+      row.cells.put(to, cell);
+      link(from, cell);
+    } else {
+      cell.value = cell.value + 1;
+    }
+  }
+
+  /**
+   * 单词的入度.
+   *
+   * @param word 单词
+   * @return 入度
+   */
+  int inDegree(String word) {
+    Map<String, Cell> sources = in.get(word);
+    return sources == null ? 0 : sources.size();
+  }
+
+  /**
+   * 指向单词的所有起点，只读视图.
+   *
+   * @param word 单词
+   * @return 前驱单词集合
+   */
+  Set<String> predecessors(String word) {
+    return Collections.unmodifiableSet(in.getOrDefault(word, Collections.emptyMap()).keySet());
+  }
+
+  /**
+   * 遍历指向单词的所有边.
+   *
+   * @param word   单词
+   * @param action 回调，参数为起点和权值
+   */
+  void forEachPredecessor(String word, BiConsumer<String, Integer> action) {
+    Map<String, Cell> sources = in.get(word);
+    if (sources != null) {
+      sources.forEach((from, cell) -> action.accept(from, cell.value));
+    }
+  }
+
+  /**
+   * 估计反向表占用的堆内存字节数，Cell已计入正向表.
+   *
+   * @return 字节数
+   */
+  long reverseBytes() {
+    long bytes = GraphStatistics.hashMap(in.size());
+    for (Map<String, Cell> sources : in.values()) {
+      bytes += GraphStatistics.hashMap(sources.size());
+    }
+    return bytes;
+  }
+
+  /**
+   * 遍历只作为终点出现、没有出边的单词.
+   *
+   * @param action 回调，参数为单词和入度
+   */
+  void forEachSink(ObjIntConsumer<String> action) {
+    in.forEach((word, sources) -> {
+      if (!rows.containsKey(word)) {
+        action.accept(word, sources.size());
+      }
+    });
+  }
+
+  private void link(String from, Cell cell) {
+    in.computeIfAbsent(cell.key, k -> new HashMap<>()).put(from, cell);
+  }
+
+  private void unlink(String from, String to) {
+    Map<String, Cell> sources = in.get(to);
+    if (sources != null) {
+      sources.remove(from);
+      if (sources.isEmpty()) {
+        in.remove(to);
+      }
+    }
+  }
+
+  private void link(Row row) {
+    for (Cell cell : row.cells.values()) {
+      link(row.entry.key, cell);
+    }
+  }
+
+  private void unlink(Row row) {
+    if (row != null) {
+      for (Cell cell : row.cells.values()) {
+        unlink(row.entry.key, cell.key);
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return rows.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return rows.containsKey(key);
+  }
+
+  @Override
+  public Map<String, Integer> get(Object key) {
+    return rows.get(key);
+  }
+
+  @Override
+  public Map<String, Integer> put(String key, Map<String, Integer> value) {
+    modCount++;
+    Row row = new Row(key, value);
+    Row old = rows.put(key, row);
+    unlink(old);
+    link(row);
+    return old;
+  }
+
+  @Override
+  public Map<String, Integer> remove(Object key) {
+    modCount++;
+    Row row = rows.remove(key);
+    unlink(row);
+    return row;
+  }
+
+  @Override
+  public void clear() {
+    modCount++;
+    rows.clear();
+    in.clear();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return new TrackedSet<>(rows.keySet(), key -> key, key -> unlink(rows.get(key)),
+        rows::containsKey);
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super String, ? super Map<String, Integer>> action) {
+    rows.forEach(action);
+  }
+
+  @Override
+  public Collection<Map<String, Integer>> values() {
+    return new TrackedValues<>(rows.values(), row -> row, this::unlink);
+  }
+
+  @Override
+  public Set<Entry<String, Map<String, Integer>>> entrySet() {
+    return new TrackedSet<>(rows.values(), row -> row.entry, this::unlink,
+        o -> o instanceof Entry && rows.containsKey(((Entry<?, ?>) o).getKey())
+            && rows.get(((Entry<?, ?>) o).getKey()).entry.equals(o));
+  }
+
+  /**
+   * 一行：一个起点的全部出边.
+   */
+  private final class Row extends AbstractMap<String, Integer> {
+    private final Map<String, Cell> cells = new HashMap<>();
+    //外层entrySet中代表本行的Entry，替换行时转交给新行
+    private RowEntry entry;
+
+    Row(String key) {
+      this.entry = new RowEntry(key, this);
+    }
+
+    Row(String key, Map<String, Integer> source) {
+      this(key);
+      source.forEach((to, weight) -> cells.put(to, new Cell(to, Objects.requireNonNull(weight))));
+    }
+
+    //行已从外层移除或被替换后，对它的修改不再反映到反向表
+    private boolean attached() {
+      return rows.get(entry.key) == this;
+    }
+
+    private void unlinkCell(String to) {
+      if (attached()) {
+        unlink(entry.key, to);
+      }
+    }
+
+    @Override
+    public int size() {
+      return cells.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return cells.containsKey(key);
+    }
+
+    @Override
+    public Integer get(Object key) {
+      Cell cell = cells.get(key);
+      return cell == null ? null : cell.value;
+    }
+
+    @Override
+    public Integer put(String key, Integer value) {
+      Objects.requireNonNull(value);
+      modCount++;
+      Cell cell = cells.get(key);
+      if (cell == null) {
+        cell = new Cell(key, value);
+        cells.put(key, cell);
+        if (attached()) {
+          link(entry.key, cell);
+        }
+        return null;
+      }
+      Integer old = cell.value;
+      cell.value = value;
+      return old;
+    }
+
+    @Override
+    public Integer remove(Object key) {
+      modCount++;
+      Cell cell = cells.remove(key);
+      if (cell == null) {
+        return null;
+      }
+      unlinkCell(cell.key);
+      return cell.value;
+    }
+
+    @Override
+    public void clear() {
+      modCount++;
+      if (attached()) {
+        unlink(this);
+      }
+      cells.clear();
+    }
+
+    @Override
+    public Set<String> keySet() {
+      return new TrackedSet<>(cells.keySet(), key -> key, this::unlinkCell,
+          cells::containsKey);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Integer> action) {
+      for (Cell cell : cells.values()) {
+        action.accept(cell.key, cell.value);
+      }
+    }
+
+    @Override
+    public Collection<Integer> values() {
+      return new TrackedValues<>(cells.values(), cell -> cell.value,
+          cell -> unlinkCell(cell.key));
+    }
+
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+      return new TrackedSet<>(cells.values(), cell -> cell, cell -> unlinkCell(cell.key),
+          o -> o instanceof Entry && cells.containsKey(((Entry<?, ?>) o).getKey())
+              && cells.get(((Entry<?, ?>) o).getKey()).equals(o));
+    }
+  }
+
+  /**
+   * 外层的Entry，setValue时把新值复制成新行替换本行.
+   */
+  private final class RowEntry implements Entry<String, Map<String, Integer>> {
+    private final String key;
+    private Row row;
+
+    RowEntry(String key, Row row) {
+      this.key = key;
+      this.row = row;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public Map<String, Integer> getValue() {
+      return row;
+    }
+
+    @Override
+    public Map<String, Integer> setValue(Map<String, Integer> value) {
+      modCount++;
+      Row old = row;
+      row = new Row(key, value);
+      row.entry = this;
+      //本行仍在表中时才替换；替换已有键的值不是结构修改，遍历可以继续
+      if (rows.get(key) == old) {
+        unlink(old);
+        rows.put(key, row);
+        link(row);
+      }
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Entry && key.equals(((Entry<?, ?>) o).getKey())
+          && row.equals(((Entry<?, ?>) o).getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ row.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + row;
+    }
+  }
+
+  /**
+   * 一条边，即内层的Entry；setValue计为修改.
+   */
+  private final class Cell implements Entry<String, Integer> {
+    private final String key;
+    private Integer value;
+
+    Cell(String key, Integer value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String getKey() {
+      return key;
+    }
+
+    @Override
+    public Integer getValue() {
+      return value;
+    }
+
+    @Override
+    public Integer setValue(Integer value) {
+      Objects.requireNonNull(value);
+      modCount++;
+      Integer old = this.value;
+      this.value = value;
+      return old;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Entry && key.equals(((Entry<?, ?>) o).getKey())
+          && value.equals(((Entry<?, ?>) o).getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return key.hashCode() ^ value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return key + "=" + value;
+    }
+  }
+
+  //只读操作直接作用于底层集合的迭代器，元素经view转换；remove计为修改，删除前先调用onRemove
+  private <T, E> Iterator<E> tracked(Iterator<T> it, Function<? super T, ? extends E> view,
+                                     Consumer<? super T> onRemove) {
+    return new Iterator<>() {
+      private T last;
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public E next() {
+        last = it.next();
+        return view.apply(last);
+      }
+
+      @Override
+      public void remove() {
+        modCount++;
+        onRemove.accept(last);
+        it.remove();
+      }
+    };
+  }
+
+  /**
+   * 底层集合的Set视图.
+   */
+  private final class TrackedSet<T, E> extends AbstractSet<E> {
+    private final Collection<T> backing;
+    private final Function<? super T, ? extends E> view;
+    private final Consumer<? super T> onRemove;
+    private final Predicate<Object> contains;
+
+    TrackedSet(Collection<T> backing, Function<? super T, ? extends E> view,
+               Consumer<? super T> onRemove, Predicate<Object> contains) {
+      this.backing = backing;
+      this.view = view;
+      this.onRemove = onRemove;
+      this.contains = contains;
+    }
+
+    @Override
+    public int size() {
+      return backing.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return contains.test(o);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      return tracked(backing.iterator(), view, onRemove);
+    }
+  }
+
+  /**
+   * 底层集合的values视图.
+   */
+  private final class TrackedValues<T, E> extends AbstractCollection<E> {
+    private final Collection<T> backing;
+    private final Function<? super T, ? extends E> view;
+    private final Consumer<? super T> onRemove;
+
+    TrackedValues(Collection<T> backing, Function<? super T, ? extends E> view,
+                  Consumer<? super T> onRemove) {
+      this.backing = backing;
+      this.view = view;
+      this.onRemove = onRemove;
+    }
+
+    @Override
+    public int size() {
+      return backing.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      return tracked(backing.iterator(), view, onRemove);
+    }
+  }
+}
@@ -0,0 +1,173 @@
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * GraphProcessor的异步接口.
+ * 查询的计算部分在有界的计算线程池中执行，队列已满时返回的future以RejectedExecutionException完成；
+ * 调用dot生成图片和写文件在单独的绘图线程中执行，不占用计算线程；所有查询都写同一个graph.png
+ * 或random_walk.txt，因此绘图线程只有一个，各次输出按完成顺序依次写入，不会互相覆盖到一半.
+ * 没有图片或文件要输出的结果（桥接词、不可达等）直接在计算线程中完成，不在绘图线程后排队.
+ * 绘图队列同样有界，已满时future以RejectedExecutionException完成.
+ * 每个查询有一个CancellationToken，Dijkstra、随机游走和生成DOT源码的循环中检查它：
+ * 返回的future被取消或超过时限时，计算在下一次检查时停止并释放线程.
+ * 读入文件等修改图的操作不能与异步查询同时进行.
+ */
+public final class AsyncGraphProcessor implements AutoCloseable {
+  static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+  private final GraphProcessor processor;
+  private final ExecutorService compute;
+  private final ExecutorService render;
+  //尚未完成的查询，关闭时全部取消
+  private final Set<CompletableFuture<?>> active = ConcurrentHashMap.newKeySet();
+
+  public AsyncGraphProcessor(GraphProcessor processor) {
+    this(processor, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_CAPACITY);
+  }
+
+  /**
+   * 创建异步接口.
+   *
+   * @param processor      图
+   * @param computeThreads 计算线程数
+   * @param queueCapacity  计算队列容量
+   */
+  public AsyncGraphProcessor(GraphProcessor processor, int computeThreads, int queueCapacity) {
+    this(processor, pool(computeThreads, queueCapacity, "graph-compute"),
+        pool(1, queueCapacity, "graph-render"));
+  }
+
+  AsyncGraphProcessor(GraphProcessor processor, ExecutorService compute, ExecutorService render) {
+    this.processor = processor;
+    this.compute = compute;
+    this.render = render;
+  }
+
+  //固定线程数、有界队列的守护线程池
+  static ExecutorService pool(int threads, int queueCapacity, String name) {
+    return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), r -> {
+          Thread t = new Thread(r, name);
+          t.setDaemon(true);
+          return t;
+        });
+  }
+
+  /**
+   * 异步查询桥接词.
+   *
+   * @param word1   单词1
+   * @param word2   单词2
+   * @param timeout 时限，为null时不限
+   * @return 查询结果
+   */
+  public CompletableFuture<String> queryBridgeWords(String word1, String word2,
+                                                    Duration timeout) {
+    return submit(token -> new GraphProcessor.RenderJob(
+        processor.queryBridgeWords(word1, word2), null), job -> false, job -> job.result, timeout);
+  }
+
+  /**
+   * 异步计算最短路径并生成图片.
+   *
+   * @param word1   起点
+   * @param word2   终点
+   * @param timeout 时限，为null时不限
+   * @return 查询结果
+   */
+  public CompletableFuture<String> calcShortestPath(String word1, String word2,
+                                                    Duration timeout) {
+    return submit(token -> processor.prepareShortestPath(word1, word2, token),
+        job -> job.graph != null, processor::render, timeout);
+  }
+
+  /**
+   * 异步根据桥接词生成新文本并生成图片.
+   *
+   * @param inputText 输入文本
+   * @param timeout   时限，为null时不限
+   * @return 新文本
+   */
+  public CompletableFuture<String> generateNewText(String inputText, Duration timeout) {
+    return submit(token -> processor.prepareNewText(inputText, token),
+        job -> job.graph != null, processor::render, timeout);
+  }
+
+  /**
+   * 异步展示有向图.
+   *
+   * @param timeout 时限，为null时不限
+   * @return 图片生成后完成
+   */
+  public CompletableFuture<Void> showDirectedGraph(Duration timeout) {
+    return submit(processor::prepareDirectedGraph, job -> job.graph != null, job -> {
+      processor.render(job);
+      return null;
+    }, timeout);
+  }
+
+  /**
+   * 异步随机游走并写入文件.
+   *
+   * @param timeout 时限，为null时不限
+   * @return 游走经过的单词序列
+   */
+  public CompletableFuture<String> randomWalk(Duration timeout) {
+    return submit(token -> new GraphProcessor.RenderJob(processor.walk(token), null),
+        job -> !job.result.isEmpty(), job -> processor.writeRandomWalk(job.result), timeout);
+  }
+
+  //计算部分提交到计算线程池；needsRender为真时由绘图线程执行finish，否则直接在计算线程中执行
+  private <T> CompletableFuture<T> submit(
+      Function<CancellationToken, GraphProcessor.RenderJob> prepare,
+      Predicate<GraphProcessor.RenderJob> needsRender,
+      Function<GraphProcessor.RenderJob, T> finish, Duration timeout) {
+    CancellationToken token = timeout == null
+        ? new CancellationToken() : CancellationToken.withTimeout(timeout);
+    CompletableFuture<T> result;
+    try {
+      result = CompletableFuture.supplyAsync(() -> {
+        token.throwIfCancelled();
+        return prepare.apply(token);
+      }, compute).thenCompose(job -> needsRender.test(job)
+          //绘图队列已满时supplyAsync抛出RejectedExecutionException，future以它完成
+          ? CompletableFuture.supplyAsync(() -> finish.apply(job), render)
+          : CompletableFuture.completedFuture(finish.apply(job)));
+    } catch (RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    active.add(result);
+    //future被取消、超时或失败时停止计算
+    result.whenComplete((value, error) -> {
+      active.remove(result);
+      if (error != null) {
+        token.cancel();
+      }
+    });
+    if (timeout != null) {
+      result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+    return result;
+  }
+
+  /**
+   * 取消所有未完成的查询并关闭线程池.
+   */
+  @Override
+  public void close() {
+    for (CompletableFuture<?> future : active) {
+      future.cancel(false);
+    }
+    compute.shutdownNow();
+    render.shutdownNow();
+  }
+}
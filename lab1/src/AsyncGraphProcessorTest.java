@@ -0,0 +1,132 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncGraphProcessorTest {
+  private GraphProcessor graphProcessor;
+  private AsyncGraphProcessor async;
+
+  @BeforeEach
+  void setUp() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("the", Map.of("quick", 1, "lazy", 3));
+    graphProcessor.graph.put("quick", Map.of("dog", 5));
+    graphProcessor.graph.put("lazy", Map.of("dog", 1));
+    graphProcessor.graph.put("dog", Map.of("the", 4));
+    graphProcessor.graph.put("cat", Map.of("sat", 1));
+    async = new AsyncGraphProcessor(graphProcessor, 2, 8);
+  }
+
+  @AfterEach
+  void tearDown() {
+    async.close();
+  }
+
+  @Test
+  void testQueries() throws Exception {
+    String bridges = async.queryBridgeWords("the", "dog", null).get(5, TimeUnit.SECONDS);
+    assertTrue(bridges.startsWith("The bridge words from the to dog are: "), bridges);
+    assertTrue(bridges.contains("quick") && bridges.contains("lazy"), bridges);
+    assertEquals("No the or cow in the graph!",
+        async.calcShortestPath("the", "cow", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS));
+    assertEquals("No path from the to cat!",
+        async.calcShortestPath("the", "cat", null).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testConcurrentWalksWriteWholeFile() throws Exception {
+    List<CompletableFuture<String>> walks = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      walks.add(async.randomWalk(null));
+    }
+    Set<String> results = new HashSet<>();
+    for (CompletableFuture<String> walk : walks) {
+      results.add(walk.get(5, TimeUnit.SECONDS));
+    }
+    //绘图线程只有一个，文件内容是某一次游走的完整结果
+    String written = new String(Files.readAllBytes(Paths.get("random_walk.txt")),
+        StandardCharsets.UTF_8);
+    assertTrue(results.contains(written), written);
+  }
+
+  @Test
+  void testRenderQueueBoundedAndBypassed() throws Exception {
+    ExecutorService render = AsyncGraphProcessor.pool(1, 1, "graph-render");
+    CountDownLatch release = new CountDownLatch(1);
+    try (AsyncGraphProcessor blocked = new AsyncGraphProcessor(graphProcessor,
+        AsyncGraphProcessor.pool(2, 8, "graph-compute"), render)) {
+      render.execute(() -> {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      //没有图片要生成的结果不在绘图线程后等待
+      assertTrue(blocked.queryBridgeWords("the", "dog", Duration.ofSeconds(5))
+          .get(5, TimeUnit.SECONDS).startsWith("The bridge words from the to dog are: "));
+      assertEquals("No path from the to cat!",
+          blocked.calcShortestPath("the", "cat", null).get(5, TimeUnit.SECONDS));
+      //绘图队列容量为1，第二个游走被拒绝
+      CompletableFuture<String> queued = blocked.randomWalk(null);
+      while (((ThreadPoolExecutor) render).getQueue().isEmpty()) {
+        Thread.sleep(1);
+      }
+      ExecutionException e = assertThrows(ExecutionException.class,
+          () -> blocked.randomWalk(null).get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+      release.countDown();
+      assertTrue(!queued.get(5, TimeUnit.SECONDS).isEmpty());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void testCancelledTokenStopsLoops() {
+    CancellationToken token = new CancellationToken();
+    token.cancel();
+    assertThrows(CancellationException.class,
+        () -> graphProcessor.prepareShortestPath("the", "dog", token));
+    assertThrows(CancellationException.class, () -> graphProcessor.walk(token));
+    assertThrows(CancellationException.class,
+        () -> graphProcessor.prepareNewText("the dog", token));
+    graphProcessor.useOffHeapStore(null);
+    assertThrows(CancellationException.class,
+        () -> graphProcessor.prepareShortestPath("the", "dog", token));
+    assertThrows(CancellationException.class, () -> graphProcessor.walk(token));
+  }
+
+  @Test
+  void testDeadline() {
+    CancellationToken expired = CancellationToken.withTimeout(Duration.ZERO);
+    assertTrue(expired.isCancelled());
+    assertThrows(CancellationException.class, expired::throwIfCancelled);
+    ExecutionException e = assertThrows(ExecutionException.class,
+        () -> async.calcShortestPath("the", "dog", Duration.ZERO).get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof TimeoutException
+        || e.getCause() instanceof CancellationException, e.getCause().toString());
+  }
+}
@@ -0,0 +1,65 @@
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 协作式取消标记.
+ * 长时间运行的循环（Dijkstra、随机游走、生成DOT源码）每轮检查一次，
+ * 被取消或超过截止时间时抛出CancellationException，由调用者结束查询.
+ */
+public final class CancellationToken {
+  private volatile boolean cancelled;
+  //截止时间（System.nanoTime），hasDeadline为false时无截止时间
+  private final long deadline;
+  private final boolean hasDeadline;
+
+  public CancellationToken() {
+    this.deadline = 0;
+    this.hasDeadline = false;
+  }
+
+  private CancellationToken(long deadline) {
+    this.deadline = deadline;
+    this.hasDeadline = true;
+  }
+
+  /**
+   * 创建在timeout之后自动失效的标记.
+   *
+   * @param timeout 时限
+   * @return 标记
+   */
+  public static CancellationToken withTimeout(Duration timeout) {
+    return new CancellationToken(System.nanoTime() + timeout.toNanos());
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled || hasDeadline && System.nanoTime() - deadline >= 0;
+  }
+
+  /**
+   * 已取消或超时时抛出CancellationException.
+   */
+  public void throwIfCancelled() {
+    if (cancelled) {
+      throw new CancellationException("Query cancelled");
+    }
+    if (hasDeadline && System.nanoTime() - deadline >= 0) {
+      throw new CancellationException("Query deadline exceeded");
+    }
+  }
+
+  /**
+   * 检查可能为null的标记，为null时不做任何事.
+   *
+   * @param token 标记
+   */
+  static void check(CancellationToken token) {
+    if (token != null) {
+      token.throwIfCancelled();
+    }
+  }
+}
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * 单词重要性分析：带权PageRank、入度/出度中心性和采样近似的介数中心性.
+ * 所有计算都在图索引和基本类型数组上进行，迭代按结点拆分后在fork-join公共线程池中并行执行.
+ */
+public final class GraphAnalytics {
+  static final double DAMPING = 0.85;
+  static final double TOLERANCE = 1e-9;
+  static final int MAX_ITERATIONS = 100;
+  static final int BETWEENNESS_SAMPLES = 64;
+  static final long BETWEENNESS_SEED = 1L;
+
+  private GraphAnalytics() {
+  }
+
+  /**
+   * 带权PageRank.
+   * 按入边拉取：pr'[v] = (1 - d) / n + d * (sum(pr[u] * w(u, v) / out(u)) + 悬挂结点总量 / n)，
+   * 每个结点只写自己的值，各迭代内无需同步.
+   *
+   * @param g             图
+   * @param damping       阻尼系数
+   * @param tolerance     两次迭代的L1距离小于该值时认为收敛
+   * @param maxIterations 最大迭代次数
+   * @return 各结点的PageRank值
+   */
+  public static double[] pageRank(OffHeapGraph g, double damping, double tolerance,
+                                  int maxIterations) {
+    int n = g.nodeCount();
+    double[] rank = new double[n];
+    if (n == 0) {
+      return rank;
+    }
+    double[] next = new double[n];
+    double[] share = new double[n];
+    Arrays.fill(rank, 1.0 / n);
+    for (int iteration = 0; iteration < maxIterations; iteration++) {
+      final double[] current = rank;
+      //每个结点沿单位权值分出的份额
+      IntStream.range(0, n).parallel().forEach(u -> {
+        int out = g.outWeight(u);
+        share[u] = out == 0 ? 0 : current[u] / out;
+      });
+      double dangling = IntStream.range(0, n).parallel()
+          .filter(u -> g.outWeight(u) == 0).mapToDouble(u -> current[u]).sum();
+      double base = (1 - damping) / n + damping * dangling / n;
+      final double[] updated = next;
+      IntStream.range(0, n).parallel().forEach(v -> {
+        double sum = 0;
+        for (int e = g.firstInEdge(v); e < g.endInEdge(v); e++) {
+          sum += share[g.source(e)] * g.inWeight(e);
+        }
+        updated[v] = base + damping * sum;
+      });
+      double delta = IntStream.range(0, n).parallel()
+          .mapToDouble(v -> Math.abs(updated[v] - current[v])).sum();
+      next = rank;
+      rank = updated;
+      if (delta < tolerance) {
+        break;
+      }
+    }
+    return rank;
+  }
+
+  /**
+   * 入度中心性，即入度除以n - 1.
+   *
+   * @param g 图
+   * @return 各结点的入度中心性
+   */
+  public static double[] inDegreeCentrality(OffHeapGraph g) {
+    int n = g.nodeCount();
+    double scale = n > 1 ? 1.0 / (n - 1) : 1.0;
+    return IntStream.range(0, n).parallel().mapToDouble(v -> g.inDegree(v) * scale).toArray();
+  }
+
+  /**
+   * 出度中心性，即出度除以n - 1.
+   *
+   * @param g 图
+   * @return 各结点的出度中心性
+   */
+  public static double[] outDegreeCentrality(OffHeapGraph g) {
+    int n = g.nodeCount();
+    double scale = n > 1 ? 1.0 / (n - 1) : 1.0;
+    return IntStream.range(0, n).parallel()
+        .mapToDouble(v -> (g.endEdge(v) - g.firstEdge(v)) * scale).toArray();
+  }
+
+  /**
+   * 采样近似的介数中心性（Brandes算法）.
+   * 随机选取samples个源点分别做带权最短路径计数，并按n / samples放大；各源点并行计算，
+   * 前驱不单独存储，回溯时沿入边检查dist[v] + w(v, u) == dist[u].
+   *
+   * @param g       图
+   * @param samples 源点个数，不小于结点数时为精确值
+   * @param seed    随机种子
+   * @return 各结点的介数中心性
+   */
+  public static double[] betweenness(OffHeapGraph g, int samples, long seed) {
+    int n = g.nodeCount();
+    int[] sources = IntStream.range(0, n).toArray();
+    int count = Math.min(samples, n);
+    SplittableRandom random = new SplittableRandom(seed);
+    for (int i = 0; i < count; i++) {
+      int j = i + random.nextInt(n - i);
+      int tmp = sources[i];
+      sources[i] = sources[j];
+      sources[j] = tmp;
+    }
+    double[] centrality = IntStream.range(0, count).parallel().collect(
+        () -> new double[n],
+        (acc, i) -> accumulate(g, sources[i], acc),
+        (a, b) -> {
+          for (int v = 0; v < n; v++) {
+            a[v] += b[v];
+          }
+        });
+    if (count > 0 && count < n) {
+      double scale = (double) n / count;
+      for (int v = 0; v < n; v++) {
+        centrality[v] *= scale;
+      }
+    }
+    return centrality;
+  }
+
+  //单个源点的Brandes累加，最短路径计数由图完成
+  private static void accumulate(OffHeapGraph g, int source, double[] centrality) {
+    int n = g.nodeCount();
+    int[] dist = new int[n];
+    double[] sigma = new double[n];
+    double[] delta = new double[n];
+    int[] order = new int[n];
+    int settledCount = g.countShortestPaths(source, dist, sigma, order);
+    //按距离从远到近回溯依赖值
+    for (int i = settledCount - 1; i > 0; i--) {
+      int w = order[i];
+      for (int e = g.firstInEdge(w); e < g.endInEdge(w); e++) {
+        int v = g.source(e);
+        if (dist[v] != Integer.MAX_VALUE && dist[v] + g.inWeight(e) == dist[w]) {
+          delta[v] += sigma[v] / sigma[w] * (1 + delta[w]);
+        }
+      }
+      centrality[w] += delta[w];
+    }
+  }
+
+  /**
+   * 取得分最高的n个结点.
+   *
+   * @param scores 各结点得分
+   * @param n      个数
+   * @return 结点编号，按得分降序
+   */
+  public static int[] topN(double[] scores, int n) {
+    int count = Math.min(n, scores.length);
+    int[] top = new int[count];
+    int found = 0;
+    for (int v = 0; v < scores.length; v++) {
+      if (found == count && (count == 0 || scores[v] <= scores[top[count - 1]])) {
+        continue;
+      }
+      int i = found < count ? found++ : count - 1;
+      while (i > 0 && scores[top[i - 1]] < scores[v]) {
+        top[i] = top[i - 1];
+        i--;
+      }
+      top[i] = v;
+    }
+    return top;
+  }
+
+  /**
+   * 生成PageRank、入度、出度和介数中心性的前n名报告.
+   *
+   * @param g    图
+   * @param topN 每项列出的个数
+   * @return 报告文本
+   */
+  public static String report(OffHeapGraph g, int topN) {
+    StringBuilder sb = new StringBuilder();
+    appendTop(sb, "PageRank", g, pageRank(g, DAMPING, TOLERANCE, MAX_ITERATIONS), topN);
+    appendTop(sb, "In-degree centrality", g, inDegreeCentrality(g), topN);
+    appendTop(sb, "Out-degree centrality", g, outDegreeCentrality(g), topN);
+    appendTop(sb, "Betweenness centrality (approx.)", g,
+        betweenness(g, BETWEENNESS_SAMPLES, BETWEENNESS_SEED), topN);
+    return sb.toString().trim();
+  }
+
+  private static void appendTop(StringBuilder sb, String title, OffHeapGraph g,
+                                double[] scores, int n) {
+    sb.append(title).append(":\n");
+    int[] top = topN(scores, n);
+    for (int i = 0; i < top.length; i++) {
+      sb.append(String.format(Locale.ROOT, "  %d. %s %.6f\n", i + 1, g.word(top[i]),
+          scores[top[i]]));
+    }
+  }
+}
@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GraphAnalyticsTest {
+  private OffHeapGraph g;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    //a、b、c都指向hub，hub指向d
+    Map<String, Map<String, Integer>> graph = new HashMap<>();
+    graph.put("a", Map.of("hub", 1));
+    graph.put("b", Map.of("hub", 1));
+    graph.put("c", Map.of("hub", 2));
+    graph.put("hub", Map.of("d", 1));
+    graph.put("d", new HashMap<>());
+    g = OffHeapGraph.build(graph, null);
+  }
+
+  @Test
+  void testPageRank_SumsToOneAndRanksSink() {
+    double[] rank = GraphAnalytics.pageRank(g, 0.85, 1e-12, 200);
+    double sum = 0;
+    for (double r : rank) {
+      sum += r;
+    }
+    assertEquals(1.0, sum, 1e-9);
+    int[] top = GraphAnalytics.topN(rank, 2);
+    assertEquals("d", g.word(top[0]));
+    assertEquals("hub", g.word(top[1]));
+  }
+
+  @Test
+  void testDegreeCentrality() {
+    double[] in = GraphAnalytics.inDegreeCentrality(g);
+    double[] out = GraphAnalytics.outDegreeCentrality(g);
+    assertEquals(0.75, in[g.id("hub")], 1e-12);
+    assertEquals(0.25, out[g.id("hub")], 1e-12);
+    assertEquals(0.0, out[g.id("d")], 1e-12);
+  }
+
+  @Test
+  void testBetweenness_ExactWhenAllSourcesSampled() {
+    double[] bc = GraphAnalytics.betweenness(g, 100, 1L);
+    //a、b、c到d的最短路径都经过hub
+    assertEquals(3.0, bc[g.id("hub")], 1e-12);
+    assertEquals(0.0, bc[g.id("a")], 1e-12);
+    assertEquals(0.0, bc[g.id("d")], 1e-12);
+  }
+
+  @Test
+  void testTopN() {
+    assertArrayEquals(new int[] {2, 0}, GraphAnalytics.topN(new double[] {3, 1, 5, 2}, 2));
+    assertArrayEquals(new int[0], GraphAnalytics.topN(new double[] {3}, 0));
+  }
+
+  @Test
+  void testAnalyzeGraph() {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    assertEquals("The graph is empty!", graphProcessor.analyzeGraph(3));
+    graphProcessor.graph.put("a", Map.of("b", 1));
+    graphProcessor.graph.put("b", new HashMap<>());
+    assertTrue(graphProcessor.analyzeGraph(1).startsWith("PageRank:\n  1. b "));
+  }
+}
@@ -7,17 +7,22 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.function.IntConsumer;
 import java.security.SecureRandom;
 import org.apache.commons.io.FilenameUtils;
 
@@ -25,21 +30,66 @@ import org.apache.commons.io.FilenameUtils;
  * 类GraphProcesser.
  */
 public class GraphProcessor {
-  Map<String, Map<String, Integer>> graph = new HashMap<>();
+  //邻接表，记录修改次数；直接修改graph或其中的内层Map后索引快照自动重建
+  final AdjacencyMap graph = new AdjacencyMap();
   private static final SecureRandom SR = new SecureRandom();
+  //堆外存储，启用后graph被清空，所有读操作改为遍历store
+  private OffHeapGraph store;
+  private String storeFile;
+  //未启用堆外存储时按需构建的索引快照，graph被修改后失效
+  private OffHeapGraph snapshot;
+  //构建快照时graph的修改次数
+  private long snapshotVersion;
+  //强连通分量与可达性索引，与索引快照一同失效
+  private ReachabilityIndex reachability;
+  private OffHeapGraph reachabilityOf;
+  //n阶模式（n > 2）下的上下文图，二阶时为null
+  private NgramGraph ngram;
+  //单词字典，graph的键、store和n阶图的单词编号都取自这里
+  private final WordDictionary dictionary = new WordDictionary();
+  //启用堆外存储时读入的边直接按单词编号累计在这里，读入结束后构建新的store
+  private OffHeapGraph.Builder pending;
+  //最近一次绘图时DOT缓冲区的容量（字符数）
+  private volatile int lastDotCapacity;
+
+  /**
+   * 边遍历回调.
+   */
+  interface EdgeVisitor {
+    void visit(String from, String to, int weight);
+  }
+
+  /**
+   * 查询结果及其待绘制的图.
+   * 计算部分生成结果文本和DOT源码，绘图部分调用dot生成图片，二者可以在不同线程中执行.
+   */
+  static final class RenderJob {
+    final String result;
+    //无需绘图时为null
+    final GraphViz graph;
+
+    RenderJob(String result, GraphViz graph) {
+      this.result = result;
+      this.graph = graph;
+    }
+  }
 
   /**
    * main.
    *
-   * @param args args
+   * @param args args，可选的第一个参数为n-gram阶数
    */
   public static void main(String[] args) {
     GraphProcessor processor = new GraphProcessor();
     Scanner scanner = new Scanner(System.in, StandardCharsets.UTF_8);
+    if (args.length > 0) {
+      processor.setOrder(Integer.parseInt(args[0]));
+    }
 
-    System.out.println("请输入文本文件路径：");
+    System.out.println("请输入文本文件或目录路径：");
     String filePath = scanner.nextLine();
-    processor.readFileAndGenerateGraph(filePath);
+    //单个文件也走流水线，保留路径中的目录
+    processor.readFilesAndGenerateGraph(filePath, Runtime.getRuntime().availableProcessors());
 
     while (true) {
       System.out.println("请选择操作：");
@@ -49,6 +99,8 @@ public class GraphProcessor {
       System.out.println("4. 计算两个单词之间的最短路径");
       System.out.println("5. 随机游走");
       System.out.println("6. 退出");
+      System.out.println("7. 单词重要性分析");
+      System.out.println("8. 图统计与内存占用");
 
       int choice = scanner.nextInt();
       scanner.nextLine(); // consume newline
@@ -58,6 +110,13 @@ public class GraphProcessor {
           processor.showDirectedGraph();
           break;
         case 2:
+          if (processor.getOrder() > 2) {
+            System.out.println("请输入短语：");
+            String phrase = scanner.nextLine();
+            System.out.println("请输入单词：");
+            System.out.println(processor.queryBridgeWords(phrase, scanner.nextLine().trim()));
+            break;
+          }
           System.out.println("请输入两个单词：");
           String word1 = scanner.next();
           String word2 = scanner.next();
@@ -69,6 +128,13 @@ public class GraphProcessor {
           System.out.println(processor.generateNewText(inputText));
           break;
         case 4:
+          if (processor.getOrder() > 2) {
+            System.out.println("请输入起始短语：");
+            String phrase1 = scanner.nextLine();
+            System.out.println("请输入终点短语：");
+            System.out.println(processor.calcShortestPath(phrase1, scanner.nextLine()));
+            break;
+          }
           System.out.println("请输入两个单词：");
           word1 = scanner.next();
           word2 = scanner.next();
@@ -79,6 +145,12 @@ public class GraphProcessor {
           break;
         case 6:
           return;
+        case 7:
+          System.out.println(processor.analyzeGraph(10));
+          break;
+        case 8:
+          System.out.println(processor.statistics().report());
+          break;
         default:
           System.out.println("无效的选择");
       }
@@ -91,50 +163,489 @@ public class GraphProcessor {
    * @param filePath 读取的文件路径
    */
   public void readFileAndGenerateGraph(String filePath) {
+    boolean offHeap = beginIngest();
     String safePath = FilenameUtils.getName(filePath);
     try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(safePath),
         StandardCharsets.UTF_8))) {
-      String line;
-      String previousWord = null;
-      while ((line = br.readLine()) != null) {
-        //先转换成小写，再将非小写字母和空格的字符转换成空格，最后根据空格将语句分割成字符串数组
-        String[] words = line.toLowerCase().replaceAll("[^a-z\\s]", " ").split("\\s+");
-        for (String word : words) {
-          if (word.isEmpty()) {
-            continue;
-          }
-          //更新边权值
-          if (previousWord != null) {
-            graph.putIfAbsent(previousWord, new HashMap<>());
-            graph.get(previousWord).put(word,
-                graph.get(previousWord).getOrDefault(word, 0) + 1);
+      if (ngram != null) {
+        ngram.reset();
+      }
+      new WordScanner(dictionary, true).scan(br, new EdgeBuilder(null));
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      //读入中途失败时也整理n阶图、重建store，已读入的部分保持可用
+      endIngest(offHeap);
+    }
+  }
+
+  /**
+   * 读取文件或目录下的所有文件（.gz文件先解压），提取单词转化成有向图.
+   * 多个线程并行解压和分词，通过有界队列交给当前线程构建图；每个文件是独立的单词序列.
+   *
+   * @param path        文件或目录路径
+   * @param parallelism 分词线程数
+   */
+  public void readFilesAndGenerateGraph(String path, int parallelism) {
+    readFilesAndGenerateGraph(path, parallelism, (file, words, completed, total) ->
+        System.out.println("[" + completed + "/" + total + "] " + file + ": " + words + " words"));
+  }
+
+  /**
+   * 读取文件或目录下的所有文件，并在每个文件完成时回调.
+   *
+   * @param path        文件或目录路径
+   * @param parallelism 分词线程数
+   * @param listener    进度回调
+   */
+  public void readFilesAndGenerateGraph(String path, int parallelism,
+                                        IngestPipeline.ProgressListener listener) {
+    boolean offHeap = beginIngest();
+    IngestPipeline pipeline = new IngestPipeline(parallelism,
+        IngestPipeline.DEFAULT_QUEUE_CAPACITY, IngestPipeline.DEFAULT_BATCH_SIZE,
+        Math.max(1, getOrder() - 1), listener);
+    try {
+      pipeline.run(Paths.get(path), batch -> {
+        //接上同一文件中前一批的末尾单词
+        EdgeBuilder builder = new EdgeBuilder(
+            batch.carry.length == 0 ? null : batch.carry[batch.carry.length - 1]);
+        if (ngram != null) {
+          ngram.reset();
+          for (String word : batch.carry) {
+            ngram.prime(dictionary.intern(word));
           }
-          previousWord = word;
+        }
+        for (int i = 0; i < batch.length; i++) {
+          builder.accept(batch.words[i]);
+        }
+      });
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      endIngest(offHeap);
+    }
+  }
+
+  /**
+   * 用与读入文件相同的规则把文本分成单词；图中已有的单词直接取自字典，不创建String.
+   *
+   * @param text 文本
+   * @return 单词列表
+   */
+  List<String> splitWords(String text) {
+    List<String> words = new ArrayList<>();
+    WordScanner scanner = new WordScanner(dictionary, false);
+    IntConsumer sink = id -> words.add(id >= 0 ? dictionary.word(id) : scanner.word());
+    scanner.feed(text, sink);
+    scanner.finish(sink);
+    return words;
+  }
+
+  /**
+   * 把单词序列逐个连成边，同时送入n阶图.
+   * 单词编号来自dictionary，graph的键直接使用字典中的String，已出现过的单词不再创建String；
+   * 启用堆外存储时边只按编号累计到pending中，不经过graph.
+   */
+  private final class EdgeBuilder implements IntConsumer {
+    private int previous;
+
+    EdgeBuilder(String previousWord) {
+      this.previous = previousWord == null ? -1 : dictionary.intern(previousWord);
+    }
+
+    @Override
+    public void accept(int id) {
+      //更新边权值
+      if (previous >= 0) {
+        if (pending != null) {
+          pending.add(previous, id, 1);
+        } else {
+          addEdge(dictionary.word(previous), dictionary.word(id));
+        }
+      }
+      previous = id;
+      if (ngram != null) {
+        ngram.accept(id);
+      }
+    }
+
+    void accept(String word) {
+      accept(dictionary.intern(word));
+    }
+  }
+
+  //读入前使索引失效；已启用堆外存储时改为向以store为基础的构建器追加，返回是否启用了堆外存储
+  private boolean beginIngest() {
+    invalidateIndexes();
+    boolean offHeap = store != null;
+    if (offHeap) {
+      pending = store.toBuilder();
+      store = null;
+    }
+    return offHeap;
+  }
+
+  private void endIngest(boolean offHeap) {
+    if (ngram != null) {
+      ngram.freeze();
+    }
+    if (offHeap) {
+      OffHeapGraph.Builder builder = pending;
+      pending = null;
+      try {
+        store = builder.build(storeFile);
+      } catch (IOException e) {
+        //映射文件失败时改用直接内存
+        e.printStackTrace();
+        storeFile = null;
+        try {
+          store = builder.build(null);
+        } catch (IOException unreachable) {
+          throw new IllegalStateException(unreachable);
+        }
+      }
+    }
+  }
+
+  /**
+   * 边权值加一.
+   *
+   * @param from 起点
+   * @param to   终点
+   */
+  void addEdge(String from, String to) {
+    graph.increment(from, to);
+  }
+
+  /**
+   * 查询指向word的所有单词.
+   * 堆上的图取自读入时同步维护的反向表，启用堆外存储时取自store的入边表，都不需要重建索引.
+   *
+   * @param word 单词
+   * @return 前驱单词集合
+   */
+  public Set<String> predecessors(String word) {
+    if (store == null) {
+      return new HashSet<>(graph.predecessors(word));
+    }
+    Set<String> result = new HashSet<>();
+    int id = store.id(word);
+    if (id >= 0) {
+      for (int e = store.firstInEdge(id); e < store.endInEdge(id); e++) {
+        result.add(store.word(store.source(e)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 查询word的入度，O(1).
+   *
+   * @param word 单词
+   * @return 入度
+   */
+  public int inDegree(String word) {
+    if (store == null) {
+      return graph.inDegree(word);
+    }
+    int id = store.id(word);
+    return id < 0 ? 0 : store.inDegree(id);
+  }
+
+  /**
+   * 沿入边反向搜索，找出所有能在maxDistance距离之内到达word的单词.
+   *
+   * @param word        终点单词
+   * @param maxDistance 最大路径长度（边权值之和）
+   * @return 单词到word的最短距离，不含word本身
+   */
+  public Map<String, Integer> wordsReaching(String word, int maxDistance) {
+    Map<String, Integer> result = new HashMap<>();
+    if (store != null) {
+      int target = store.id(word);
+      if (target < 0) {
+        return result;
+      }
+      int[] dist = new int[store.nodeCount()];
+      store.reverseShortestPaths(target, maxDistance, dist);
+      for (int node = 0; node < dist.length; node++) {
+        if (node != target && dist[node] <= maxDistance) {
+          result.put(store.word(node), dist[node]);
         }
       }
+      return result;
+    }
+    //在反向表上做Dijkstra，队列中过期的项出队时跳过
+    Map<String, Integer> dist = new HashMap<>();
+    PriorityQueue<Map.Entry<String, Integer>> queue =
+        new PriorityQueue<>(Map.Entry.comparingByValue());
+    dist.put(word, 0);
+    queue.add(Map.entry(word, 0));
+    while (!queue.isEmpty()) {
+      Map.Entry<String, Integer> top = queue.poll();
+      String current = top.getKey();
+      int d = top.getValue();
+      if (d > dist.get(current)) {
+        continue;
+      }
+      graph.forEachPredecessor(current, (from, weight) -> {
+        int newDist = d + weight;
+        if (newDist <= maxDistance && newDist < dist.getOrDefault(from, Integer.MAX_VALUE)) {
+          dist.put(from, newDist);
+          queue.add(Map.entry(from, newDist));
+        }
+      });
+    }
+    dist.remove(word);
+    return dist;
+  }
+
+  /**
+   * 设置n-gram阶数.
+   * 阶数大于2时，读入文件会另外构建以n-1个单词为结点的上下文图，桥接词、最短路径和随机游走都在其上进行；
+   * 需在读入文件之前设置.
+   *
+   * @param order 阶数，2到4之间
+   */
+  public void setOrder(int order) {
+    ngram = order == 2 ? null : new NgramGraph(order, dictionary);
+  }
+
+  public int getOrder() {
+    return ngram == null ? 2 : ngram.order();
+  }
+
+  /**
+   * 把有向图转存到堆外存储（直接内存或内存映射文件）中，并释放堆上的邻接表.
+   * 之后的各项功能都直接遍历堆外存储，不再为每条边创建对象；再读入文件时边按单词编号直接累计，
+   * 读入结束后重新构建store，不再还原成堆上的邻接表.
+   * 直接内存受-XX:MaxDirectMemorySize限制（默认与最大堆相同），图很大时应使用映射文件.
+   * 已启用时改存到新的位置；失败时保持原状.
+   *
+   * @param mappedFile 映射文件路径，为null时使用直接内存
+   */
+  public void useOffHeapStore(String mappedFile) {
+    invalidateIndexes();
+    try {
+      if (store != null) {
+        store = store.toBuilder().build(mappedFile);
+      } else {
+        store = OffHeapGraph.build(graph, dictionary, mappedFile);
+        graph.clear();
+      }
+      storeFile = mappedFile;
     } catch (IOException e) {
       e.printStackTrace();
     }
   }
 
+  /**
+   * 把当前图按单词哈希分成shards片，每片由一个本机工作进程保存，查询经路由器转发.
+   *
+   * @param shards 分片数
+   * @return 已载入全部边的路由器，用完后需关闭
+   * @throws IOException 启动工作进程或传输失败
+   */
+  public ShardRouter distribute(int shards) throws IOException {
+    ShardRouter router = ShardRouter.launch(shards);
+    try {
+      router.load(this);
+    } catch (IOException e) {
+      router.close();
+      throw e;
+    }
+    return router;
+  }
+
+  /**
+   * 获取带排序邻接和入边表的索引.
+   * 启用堆外存储时直接返回堆外存储，否则由graph构建直接内存中的快照；
+   * graph的修改次数变化后（读入文件、直接修改graph或其内层Map）重建.
+   *
+   * @return 索引
+   */
+  synchronized OffHeapGraph graphIndex() {
+    if (store != null) {
+      return store;
+    }
+    if (snapshot == null || snapshotVersion != graph.modCount()) {
+      try {
+        snapshot = OffHeapGraph.build(graph, null);
+        snapshotVersion = graph.modCount();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * 获取强连通分量与可达性索引，索引快照重建后的第一次查询时构建.
+   *
+   * @return 可达性索引
+   */
+  synchronized ReachabilityIndex reachability() {
+    OffHeapGraph index = graphIndex();
+    if (reachability == null || reachabilityOf != index) {
+      reachability = ReachabilityIndex.build(index);
+      reachabilityOf = index;
+    }
+    return reachability;
+  }
+
+  private synchronized void invalidateIndexes() {
+    snapshot = null;
+    reachability = null;
+  }
+
+  /**
+   * 查询权值最大的k个后继单词.
+   *
+   * @param word 单词
+   * @param k    个数
+   * @return 后继单词，按权值降序
+   */
+  public List<String> topSuccessors(String word, int k) {
+    OffHeapGraph index = graphIndex();
+    int id = index.id(word);
+    return id < 0 ? new ArrayList<>() : index.topSuccessors(id, k);
+  }
+
+  /**
+   * 查询权值最大的k个前驱单词.
+   *
+   * @param word 单词
+   * @param k    个数
+   * @return 前驱单词，按权值降序
+   */
+  public List<String> topPredecessors(String word, int k) {
+    OffHeapGraph index = graphIndex();
+    int id = index.id(word);
+    return id < 0 ? new ArrayList<>() : index.topPredecessors(id, k);
+  }
+
+  /**
+   * 预测word之后最可能出现的k个单词及其概率.
+   *
+   * @param word 单词
+   * @param k    个数
+   * @return 返回一个字符串，包含预测的单词和概率
+   */
+  public String predictNextWords(String word, int k) {
+    OffHeapGraph index = graphIndex();
+    int id = index.id(word);
+    if (id < 0 || index.endEdge(id) == index.firstEdge(id)) {
+      return "No words after " + word + " in the graph!";
+    }
+    int count = Math.min(k, index.endEdge(id) - index.firstEdge(id));
+    List<String> predictions = new ArrayList<>();
+    for (int rank = 0; rank < count; rank++) {
+      int e = index.edgeByWeight(id, rank);
+      predictions.add(index.word(index.target(e))
+          + String.format(Locale.ROOT, " (%.2f%%)", index.probability(id, e) * 100));
+    }
+    return "The most likely words after " + word + " are: "
+        + String.join(", ", predictions) + ".";
+  }
+
+  /**
+   * 按w(word1, b) * w(b, word2)降序取前k个桥接词.
+   *
+   * @param word1 单词1
+   * @param word2 单词2
+   * @param k     个数
+   * @return 桥接词，按得分降序
+   */
+  public List<String> rankBridgeWords(String word1, String word2, int k) {
+    OffHeapGraph index = graphIndex();
+    int id1 = index.id(word1);
+    int id2 = index.id(word2);
+    if (id1 < 0 || id2 < 0) {
+      return new ArrayList<>();
+    }
+    return index.rankBridgeWords(id1, id2, k);
+  }
+
+  /**
+   * 遍历图中的所有边.
+   *
+   * @param visitor 回调
+   */
+  void forEachEdge(EdgeVisitor visitor) {
+    if (store != null) {
+      for (int i = 0; i < store.sourceCount(); i++) {
+        int from = store.sourceNode(i);
+        for (int e = store.firstEdge(from); e < store.endEdge(from); e++) {
+          visitor.visit(store.word(from), store.word(store.target(e)), store.weight(e));
+        }
+      }
+      return;
+    }
+    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
+      String from = entry.getKey();
+      for (Map.Entry<String, Integer> toEntry : entry.getValue().entrySet()) {
+        visitor.visit(from, toEntry.getKey(), toEntry.getValue());
+      }
+    }
+  }
+
+  //单词是否在图中作为起点出现
+  private boolean containsWord(String word) {
+    return store != null ? store.isSource(store.id(word)) : graph.containsKey(word);
+  }
+
+  //边权值，边不存在时返回0
+  private int edgeWeight(String from, String to) {
+    if (store != null) {
+      int id = store.id(from);
+      int edge = id < 0 ? -1 : store.findEdge(id, store.id(to));
+      return edge < 0 ? 0 : store.weight(edge);
+    }
+    return graph.getOrDefault(from, Collections.emptyMap()).getOrDefault(to, 0);
+  }
+
   /**
    * 功能1. 展示有向图.
    */
   public void showDirectedGraph() {
+    render(prepareDirectedGraph(null));
+  }
+
+  /**
+   * 展示有向图的计算部分：生成整个图的DOT源码.
+   *
+   * @param token 取消标记，每条边检查一次；为null时不检查
+   * @return 待绘制的图
+   */
+  RenderJob prepareDirectedGraph(CancellationToken token) {
     //GraphViz中的实现
     GraphViz gv = new GraphViz();
     gv.addln(gv.start_graph());
     //结点和边权值添加
-    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
-      String from = entry.getKey();
-      for (Map.Entry<String, Integer> toEntry : entry.getValue().entrySet()) {
-        String to = toEntry.getKey();
-        int weight = toEntry.getValue();
-        gv.addEdgeWithLabel(from, to, String.valueOf(weight));
-      }
-    }
+    forEachEdge((from, to, weight) -> {
+      CancellationToken.check(token);
+      gv.addEdgeWithLabel(from, to, String.valueOf(weight));
+    });
     gv.addln(gv.end_graph());
-    //绘图
+    return new RenderJob(null, gv);
+  }
+
+  /**
+   * 绘图部分：有待绘制的图时调用dot生成图片.
+   *
+   * @param job 计算部分的结果
+   * @return 查询结果
+   */
+  String render(RenderJob job) {
+    if (job.graph != null) {
+      renderGraph(job.graph);
+    }
+    return job.result;
+  }
+
+  //绘图，并记录DOT缓冲区的大小
+  private void renderGraph(GraphViz gv) {
+    lastDotCapacity = gv.getDotCapacity();
     //String type = "png";
     String type = FilenameUtils.getName("graph.png");
     File out = new File(type);
@@ -155,15 +666,22 @@ public class GraphProcessor {
    * @return 返回一个字符串，包含全部桥接词
    */
   public String queryBridgeWords(String word1, String word2) {
-    if (!graph.containsKey(word1) || !graph.containsKey(word2)) {
+    if (ngram != null) {
+      return ngram.queryBridgeWords(word1, word2);
+    }
+    if (!containsWord(word1) || !containsWord(word2)) {
       return "No " + word1 + " or " + word2 + " in the graph!";
     }
     //哈希表实现的集合，用于存储找到的桥接词
     Set<String> bridgeWords = new HashSet<>();
-    //对word1指向的每一个单词，判断该单词是否指向word2，若是则为桥接词，存入集合
-    for (String word : graph.get(word1).keySet()) {
-      if (graph.containsKey(word) && graph.get(word).containsKey(word2)) {
-        bridgeWords.add(word);
+    if (store != null) {
+      collectBridgeWords(store.id(word1), store.id(word2), bridgeWords);
+    } else {
+      //对word1指向的每一个单词，判断该单词是否指向word2，若是则为桥接词，存入集合
+      for (String word : graph.get(word1).keySet()) {
+        if (graph.containsKey(word) && graph.get(word).containsKey(word2)) {
+          bridgeWords.add(word);
+        }
       }
     }
     //如果集合为空，没有桥接词
@@ -182,44 +700,48 @@ public class GraphProcessor {
    * @return 返回添加完桥接词之后的文本
    */
   public String generateNewText(String inputText) {
-    String[] words = inputText.toLowerCase().replaceAll("[^a-z\\s]", " ").split("\\s+");
+    return render(prepareNewText(inputText, null));
+  }
+
+  /**
+   * 生成新文本的计算部分.
+   *
+   * @param inputText 输入文本
+   * @param token     取消标记，每对相邻单词检查一次；为null时不检查
+   * @return 新文本及待绘制的图
+   */
+  RenderJob prepareNewText(String inputText, CancellationToken token) {
+    List<String> words = splitWords(inputText);
     StringBuilder newText = new StringBuilder();
     GraphViz gv = new GraphViz();
     gv.addln(gv.start_graph());
 
-    for (int i = 0; i < words.length - 1; i++) {
-      newText.append(words[i]).append(" ");
-      String bridgeWord = getBridgeWord(words[i], words[i + 1]);
+    for (int i = 0; i < words.size() - 1; i++) {
+      CancellationToken.check(token);
+      newText.append(words.get(i)).append(" ");
+      String bridgeWord = getBridgeWord(words.get(i), words.get(i + 1));
       if (bridgeWord != null) {
         newText.append(bridgeWord).append(" ");
-        int weight = calculateWeight(words[i], words[i + 1], inputText);
-        gv.addln(words[i] + " [style=filled, fillcolor=yellow];");
-        gv.addln(words[i + 1] + " [style=filled, fillcolor=yellow];");
+        int weight = calculateWeight(words.get(i), words.get(i + 1), inputText);
+        gv.addln(words.get(i) + " [style=filled, fillcolor=yellow];");
+        gv.addln(words.get(i + 1) + " [style=filled, fillcolor=yellow];");
         gv.addln(bridgeWord + " [style=filled, fillcolor=blue];");
 
-        gv.addln(words[i] + " -> " + bridgeWord + " [color=blue, label=\"" + weight
+        gv.addln(words.get(i) + " -> " + bridgeWord + " [color=blue, label=\"" + weight
             + "\"];");
-        gv.addln(bridgeWord + " -> " + words[i + 1] + " [color=blue, label=\"" + weight
+        gv.addln(bridgeWord + " -> " + words.get(i + 1) + " [color=blue, label=\"" + weight
             + "\"];");
       } else {
-        int weight = calculateWeight(words[i], words[i + 1], inputText);
-        gv.addln(words[i]);
-        gv.addln(words[i] + " -> " + words[i + 1] + " [label=\"" + weight + "\"];");
+        int weight = calculateWeight(words.get(i), words.get(i + 1), inputText);
+        gv.addln(words.get(i));
+        gv.addln(words.get(i) + " -> " + words.get(i + 1) + " [label=\"" + weight + "\"];");
       }
     }
     gv.addln(gv.end_graph());
-    //绘图
-    String type = FilenameUtils.getName("graph.png");
-    File out = new File(type);
-    byte[] img = gv.getGraph(gv.getDotSource(), type);
-    if (img != null) {
-      gv.writeGraphToFile(img, out);
-      System.out.println("Graph generated successfully: " + out.getAbsolutePath());
-    } else {
-      System.err.println("Error generating graph!");
+    if (!words.isEmpty()) {
+      newText.append(words.get(words.size() - 1));
     }
-    newText.append(words[words.length - 1]);
-    return newText.toString();
+    return new RenderJob(newText.toString(), gv);
   }
 
   private int calculateWeight(String word1, String word2, String inputText) {
@@ -234,9 +756,26 @@ public class GraphProcessor {
     return count;
   }
 
+  //在堆外存储中查找桥接词：遍历id1的出边，二分查找中间结点到id2的边
+  private void collectBridgeWords(int id1, int id2, Collection<String> bridgeWords) {
+    if (id1 < 0 || id2 < 0) {
+      return;
+    }
+    for (int e = store.firstEdge(id1); e < store.endEdge(id1); e++) {
+      int mid = store.target(e);
+      if (store.findEdge(mid, id2) >= 0) {
+        bridgeWords.add(store.word(mid));
+      }
+    }
+  }
+
   //获取桥接词
   private String getBridgeWord(String word1, String word2) {
     List<String> bridgeWords = new ArrayList<>();
+    if (store != null) {
+      collectBridgeWords(store.id(word1), store.id(word2), bridgeWords);
+      return bridgeWords.isEmpty() ? null : bridgeWords.get(SR.nextInt(bridgeWords.size()));
+    }
     //getOrDefault方法返回word1为key查找到的的哈希表中所有key的集合
     for (String word : graph.getOrDefault(word1, new HashMap<>()).keySet()) {
       //存在 word1->word->word2，则将word存入集合
@@ -260,9 +799,82 @@ public class GraphProcessor {
    * @return 返回最短路径
    */
   public String calcShortestPath(String word1, String word2) {
-    if (!graph.containsKey(word1) || !graph.containsKey(word2)) {
-      return "No " + word1 + " or " + word2 + " in the graph!";
+    return render(prepareShortestPath(word1, word2, null));
+  }
+
+  /**
+   * 最短路径的计算部分.
+   *
+   * @param word1 起点
+   * @param word2 终点
+   * @param token 取消标记，Dijkstra每取出一个结点、生成DOT时每条边检查一次；为null时不检查
+   * @return 最短路径及待绘制的图
+   */
+  RenderJob prepareShortestPath(String word1, String word2, CancellationToken token) {
+    if (ngram != null) {
+      return new RenderJob(ngram.calcShortestPath(word1, word2, token), null);
+    }
+    if (!containsWord(word1) || !containsWord(word2)) {
+      return new RenderJob("No " + word1 + " or " + word2 + " in the graph!", null);
+    }
+    //由可达性索引直接判定不可达
+    OffHeapGraph index = graphIndex();
+    ReachabilityIndex reach = reachability();
+    if (!reach.canReach(index.id(word1), index.id(word2))) {
+      return new RenderJob("No path from " + word1 + " to " + word2 + "!", null);
+    }
+    List<String> shortestpath = store != null
+        ? shortestPathOffHeap(word1, word2, token) : shortestPathOnHeap(word1, word2, token);
+    //距离未更新，则不可达
+    if (shortestpath == null) {
+      return new RenderJob("No path from " + word1 + " to " + word2 + "!", null);
+    }
+    int length = 0;
+    GraphViz gv = new GraphViz();
+    gv.addln(gv.start_graph());
+    gv.addln(word1 + " [style=filled, fillcolor=yellow];");
+    gv.addln(word2 + " [style=filled, fillcolor=yellow];");
+    String preWord = word1;
+    for (String node : shortestpath) {
+      if (node.equals(word1)) {
+        continue;
+      }
+      if (!node.equals(word2)) {
+        gv.addln(node + " [style=filled, fillcolor=blue];");
+      }
+      int weight = edgeWeight(preWord, node);
+      length += weight;
+      gv.addln(preWord + " -> " + node + " [color=blue, label=\"" + weight + "\"];");
+      preWord = node;
     }
+
+    forEachEdge((from, to, weight) -> {
+      CancellationToken.check(token);
+      if (shortestpath.contains(from) && shortestpath.contains(to)
+          && shortestNextNode(shortestpath, from, to)) {
+        return;
+      }
+      if (!shortestpath.contains(from)) {
+        gv.addln(from);
+      }
+      gv.addln(from + " -> " + to + " [label=\"" + weight + "\"];");
+      if (!shortestpath.contains(to)) {
+        gv.addln(to);
+      }
+    });
+
+    gv.addln(gv.end_graph());
+
+    //String.join方法将节点使用"->"连接
+    return new RenderJob("Shortest path: " + String.join(" -> ", shortestpath)
+        + " (Length: " + length + ")", gv);
+  }
+
+  //在堆上的邻接表中用Dijkstra算法计算最短路径，不可达返回null
+  private List<String> shortestPathOnHeap(String word1, String word2, CancellationToken token) {
+    OffHeapGraph index = graphIndex();
+    ReachabilityIndex reach = reachability();
+    int target = index.id(word2);
     Map<String, Integer> distances = new HashMap<>();
     Map<String, String> path = new HashMap<>();
     PriorityQueue<String> queue = new PriorityQueue<>(Comparator.comparingInt(distances::get));
@@ -273,16 +885,19 @@ public class GraphProcessor {
     //到自己的距离设为0，并存入队列
     distances.put(word1, 0);
     queue.add(word1);
-    GraphViz gv = new GraphViz();
-    gv.addln(gv.start_graph());
     //队列非空
     while (!queue.isEmpty()) {
       String current = queue.poll();
       if (current.equals(word2)) {
         break;
       }
+      CancellationToken.check(token);
       //计算当允许以current为中间节点时到其他节点的距离是否更短
       for (String neighbor : graph.get(current).keySet()) {
+        //跳过不能到达word2的结点
+        if (!reach.canReach(index.id(neighbor), target)) {
+          continue;
+        }
         int newDist = distances.get(current) + graph.get(current).get(neighbor);
         //若更短，则更新distance和path，并将当前节点加入队列
         if (newDist < distances.get(neighbor)) {
@@ -292,9 +907,8 @@ public class GraphProcessor {
         }
       }
     }
-    //距离未更新，则不可达
     if (distances.get(word2) == Integer.MAX_VALUE) {
-      return "No path from " + word1 + " to " + word2 + "!";
+      return null;
     }
 
     List<String> shortestpath = new LinkedList<>();
@@ -304,56 +918,149 @@ public class GraphProcessor {
     }
     //反转shortestpath，得到最短路径
     Collections.reverse(shortestpath);
+    return shortestpath;
+  }
 
-    gv.addln(word1 + " [style=filled, fillcolor=yellow];");
-    gv.addln(word2 + " [style=filled, fillcolor=yellow];");
-    String preWord = word1;
-    for (String node : shortestpath) {
-      if (node.equals(word1)) {
-        continue;
-      }
-      if (!node.equals(word2)) {
-        gv.addln(node + " [style=filled, fillcolor=blue];");
-      }
-      int weight = graph.get(preWord).get(node);
-      gv.addln(preWord + " -> " + node + " [color=blue, label=\"" + weight + "\"];");
-      preWord = node;
+  //在堆外存储上用数组和基本类型堆计算最短路径，不可达返回null
+  private List<String> shortestPathOffHeap(String word1, String word2, CancellationToken token) {
+    int source = store.id(word1);
+    int target = store.id(word2);
+    int[] dist = new int[store.nodeCount()];
+    int[] prev = new int[store.nodeCount()];
+    if (store.shortestPath(source, target, dist, prev, reachability(), token)
+        == Integer.MAX_VALUE) {
+      return null;
     }
+    return store.pathTo(prev, target);
+  }
 
-    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
-      String from = entry.getKey();
-      for (Map.Entry<String, Integer> toEntry : entry.getValue().entrySet()) {
-        String to = toEntry.getKey();
-        if (shortestpath.contains(from) && shortestpath.contains(to)
-            && shortestNextNode(shortestpath, from, to)) {
-          continue;
-        }
-        int weight = toEntry.getValue();
-        if (!shortestpath.contains(from)) {
-          gv.addln(from);
+  /**
+   * 统计结点、边、度分布和权值分布，并估计各数据结构的内存占用.
+   * 启用堆外存储时逐个结点遍历store，出入度直接取自偏移数组；否则只遍历一遍邻接表，
+   * 同时累计边和结点，入度取自反向表，最后从反向表补上只作为终点出现的单词（不再遍历边）.
+   * 字典、索引等结构的大小由数组长度直接算出.
+   *
+   * @return 统计结果
+   */
+  public synchronized GraphStatistics statistics() {
+    GraphStatistics stats = new GraphStatistics();
+    if (store != null) {
+      for (int node = 0; node < store.nodeCount(); node++) {
+        String from = store.word(node);
+        stats.node(from, store.endEdge(node) - store.firstEdge(node), store.inDegree(node));
+        for (int e = store.firstEdge(node); e < store.endEdge(node); e++) {
+          stats.edge(from, store.word(store.target(e)), store.weight(e));
         }
-        gv.addln(from + " -> " + to + " [label=\"" + weight + "\"];");
-        if (!shortestpath.contains(to)) {
-          gv.addln(to);
+      }
+      stats.addOffHeapBytes(storeFile == null ? "store (direct)" : "store (mapped)",
+          store.bufferBytes());
+    } else {
+      long adjacency = GraphStatistics.hashMap(graph.size());
+      for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
+        String from = entry.getKey();
+        stats.node(from, entry.getValue().size(), graph.inDegree(from));
+        //行的HashMap、行对象和外层Entry
+        adjacency += GraphStatistics.hashMap(entry.getValue().size())
+            + 2 * AdjacencyMap.OBJECT_BYTES;
+        for (Map.Entry<String, Integer> toEntry : entry.getValue().entrySet()) {
+          stats.edge(from, toEntry.getKey(), toEntry.getValue());
+          //每条边一个Cell
+          adjacency += AdjacencyMap.OBJECT_BYTES + GraphStatistics.boxed(toEntry.getValue());
         }
       }
+      graph.forEachSink((word, inDegree) -> stats.node(word, 0, inDegree));
+      stats.addHeapBytes("adjacency", adjacency);
+      stats.addHeapBytes("reverse index", graph.reverseBytes());
+    }
+    stats.addHeapBytes("dictionary", dictionary.estimatedBytes());
+    if (snapshot != null) {
+      stats.addHeapBytes("index snapshot dictionary", snapshot.dictionaryBytes());
+      stats.addOffHeapBytes("index snapshot", snapshot.bufferBytes());
+    }
+    if (reachability != null) {
+      stats.addHeapBytes("reachability index", reachability.estimatedBytes());
+    }
+    if (ngram != null) {
+      stats.addHeapBytes("n-gram graph", ngram.estimatedBytes());
+    }
+    if (lastDotCapacity > 0) {
+      stats.addHeapBytes("dot buffer (last render)", GraphStatistics.array(lastDotCapacity, 1));
     }
+    return stats;
+  }
 
-    gv.addln(gv.end_graph());
-    //绘图
-    String type = FilenameUtils.getName("graph.png");
-    File out = new File(type);
-    byte[] img = gv.getGraph(gv.getDotSource(), type);
-    if (img != null) {
-      gv.writeGraphToFile(img, out);
-      System.out.println("Graph generated successfully: " + out.getAbsolutePath());
-    } else {
-      System.err.println("Error generating graph!");
+  /**
+   * 单词重要性分析：列出PageRank、入度、出度和介数中心性最高的单词.
+   *
+   * @param topN 每项列出的个数
+   * @return 分析报告
+   */
+  public String analyzeGraph(int topN) {
+    OffHeapGraph index = graphIndex();
+    if (index.nodeCount() == 0) {
+      return "The graph is empty!";
     }
+    return GraphAnalytics.report(index, topN);
+  }
 
-    //String.join方法将节点使用"->"连接
-    return "Shortest path: " + String.join(" -> ", shortestpath)
-        + " (Length: " + distances.get(word2) + ")";
+  /**
+   * 计算两个单词之间的前k条最短无环路径（Yen算法）.
+   *
+   * @param word1 起始单词
+   * @param word2 终点单词
+   * @param k     条数
+   * @return 返回前k条路径，每行一条
+   */
+  public String calcKShortestPaths(String word1, String word2, int k) {
+    if (!containsWord(word1) || !containsWord(word2)) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    KShortestPaths finder = pathFinder(word1, word2);
+    return formatPaths(word1, word2, finder, finder == null ? null : finder.kShortest(k));
+  }
+
+  /**
+   * 列出两个单词之间所有长度相同的最短路径.
+   *
+   * @param word1 起始单词
+   * @param word2 终点单词
+   * @param limit 最多列出的条数
+   * @return 返回全部最短路径，每行一条
+   */
+  public String calcAllShortestPaths(String word1, String word2, int limit) {
+    if (!containsWord(word1) || !containsWord(word2)) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    KShortestPaths finder = pathFinder(word1, word2);
+    return formatPaths(word1, word2, finder, finder == null ? null : finder.allShortest(limit));
+  }
+
+  //两个单词不可达时返回null
+  private KShortestPaths pathFinder(String word1, String word2) {
+    OffHeapGraph index = graphIndex();
+    int source = index.id(word1);
+    int target = index.id(word2);
+    if (!reachability().canReach(source, target)) {
+      return null;
+    }
+    return new KShortestPaths(index, source, target);
+  }
+
+  private String formatPaths(String word1, String word2, KShortestPaths finder,
+                             List<KShortestPaths.Path> paths) {
+    if (paths == null || paths.isEmpty()) {
+      return "No path from " + word1 + " to " + word2 + "!";
+    }
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < paths.size(); i++) {
+      if (i > 0) {
+        result.append("\n");
+      }
+      result.append("Path ").append(i + 1).append(": ")
+          .append(String.join(" -> ", finder.words(paths.get(i))))
+          .append(" (Length: ").append(paths.get(i).length).append(")");
+    }
+    return result.toString();
   }
 
   /**
@@ -379,6 +1086,24 @@ public class GraphProcessor {
    * @return 返回随机游走字符串
    */
   public String randomWalk() {
+    return writeRandomWalk(walk(null));
+  }
+
+  /**
+   * 随机游走的计算部分，不写文件.
+   *
+   * @param token 取消标记，每走一步检查一次；为null时不检查
+   * @return 游走经过的单词序列
+   */
+  String walk(CancellationToken token) {
+    if (ngram != null) {
+      String walk = ngram.randomWalk(SR, token);
+      System.out.println(walk);
+      return walk;
+    }
+    if (store != null) {
+      return randomWalkOffHeap(token);
+    }
     List<String> nodes = new ArrayList<>(graph.keySet());
     if (nodes.isEmpty()) {
       return "";
@@ -400,6 +1125,7 @@ public class GraphProcessor {
       }
        */
 
+      CancellationToken.check(token);
       //将当前节点的另据节点哈希表提取出来
       Map<String, Integer> neighbors = graph.get(current);
       if (neighbors == null || neighbors.isEmpty()) {
@@ -420,17 +1146,52 @@ public class GraphProcessor {
       visitedEdges.add(edge);
     }
     System.out.println();
+    return walk.toString();
+  }
+
+  //在堆外存储上随机游走，用位图按边下标记录访问过的边
+  private String randomWalkOffHeap(CancellationToken token) {
+    if (store.sourceCount() == 0) {
+      return "";
+    }
+    int current = store.sourceNode(SR.nextInt(store.sourceCount()));
+    System.out.print(store.word(current) + " ");
+    BitSet visitedEdges = new BitSet(store.edgeCount());
+    StringBuilder walk = new StringBuilder(store.word(current));
+    while (true) {
+      CancellationToken.check(token);
+      int first = store.firstEdge(current);
+      int degree = store.endEdge(current) - first;
+      if (degree == 0) {
+        break;
+      }
+      int edge = first + SR.nextInt(degree);
+      current = store.target(edge);
+      System.out.print(store.word(current) + " ");
+      walk.append(" ").append(store.word(current));
+      //出现重复的边，停止随机游走
+      if (visitedEdges.get(edge)) {
+        break;
+      }
+      visitedEdges.set(edge);
+    }
+    System.out.println();
+    return walk.toString();
+  }
 
-    // 将结果写入文件
+  //将随机游走结果写入文件
+  String writeRandomWalk(String walk) {
+    if (walk.isEmpty()) {
+      return walk;
+    }
     try (BufferedWriter writer = new BufferedWriter(
         new OutputStreamWriter(
             new FileOutputStream("random_walk.txt"), StandardCharsets.UTF_8))) {
-      writer.write(walk.toString());
+      writer.write(walk);
     } catch (IOException e) {
       e.printStackTrace();
     }
-
-    return walk.toString();
+    return walk;
   }
 
   public void gitLabedit() {
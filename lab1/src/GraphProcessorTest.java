@@ -77,4 +77,15 @@ public class GraphProcessorTest {
     String result = graphProcessor.queryBridgeWords("the", "dog");
     assertEquals("The bridge words from the to dog are: quick, fat.", result);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testPrepareNewText_SplitsLikeReadFile() {
+    graphProcessor.graph.put("the", Map.of("quick", 1));
+    graphProcessor.graph.put("quick", Map.of("dog", 1));
+    graphProcessor.graph.put("dog", Map.of());
+    assertEquals("the quick dog istanbul",
+        graphProcessor.prepareNewText("The, DOG!! 42 \u0130stanbul", null).result);
+    assertEquals("", graphProcessor.prepareNewText("", null).result);
+    assertEquals("", graphProcessor.prepareNewText("42 ...", null).result);
+  }
+}
@@ -0,0 +1,261 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 图统计与内存估算.
+ * 由GraphProcessor.statistics()逐个结点、逐条边累计：结点数、边数、出入度分布、
+ * 边权值分布、按showDirectedGraph格式推算的DOT源码长度，以及各数据结构的估计占用字节数.
+ * 内存按64位JVM、开启压缩指针估算（对象头12字节，引用4字节，按8字节对齐），
+ * 由对象个数和数组长度直接计算，不遍历堆、不使用反射.
+ * 分布按2的幂分桶：第0桶为0，第i桶（i > 0）为[2^(i-1), 2^i).
+ */
+public final class GraphStatistics {
+  static final int OBJECT_HEADER = 12;
+  static final int REFERENCE = 4;
+  static final int ARRAY_HEADER = 16;
+  static final int HASH_MAP = 48;
+  static final int HASH_MAP_NODE = 32;
+  static final int BOXED_INTEGER = 16;
+  //showDirectedGraph每条边的固定字符：" -> "、" [label=\""、"\"];\n"
+  private static final int DOT_EDGE_CHARS = 17;
+  private static final int BUCKETS = 33;
+
+  private long nodeCount;
+  private long sourceCount;
+  private long edgeCount;
+  private long totalWeight;
+  private int maxOutDegree;
+  private int maxInDegree;
+  private int maxWeight;
+  private final long[] outDegrees = new long[BUCKETS];
+  private final long[] inDegrees = new long[BUCKETS];
+  private final long[] weights = new long[BUCKETS];
+  private long dotChars = "digraph G {\n}\n".length();
+  private final Map<String, Long> heapBytes = new LinkedHashMap<>();
+  private final Map<String, Long> offHeapBytes = new LinkedHashMap<>();
+
+  GraphStatistics() {
+  }
+
+  static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  /**
+   * 数组占用的字节数.
+   *
+   * @param length       长度
+   * @param elementBytes 每个元素的字节数
+   * @return 字节数
+   */
+  static long array(long length, int elementBytes) {
+    return align(ARRAY_HEADER + length * elementBytes);
+  }
+
+  /**
+   * 只含Latin-1字符的String占用的字节数（含内部byte数组）.
+   *
+   * @param length 长度
+   * @return 字节数
+   */
+  static long string(int length) {
+    return align(OBJECT_HEADER + 3L * Integer.BYTES) + array(length, 1);
+  }
+
+  /**
+   * 按默认负载因子存放size个元素的HashMap占用的字节数，不含键和值本身.
+   *
+   * @param size 元素个数
+   * @return 字节数
+   */
+  static long hashMap(int size) {
+    if (size == 0) {
+      return HASH_MAP;
+    }
+    int capacity = Integer.highestOneBit((int) Math.ceil(size / 0.75) - 1) << 1;
+    return HASH_MAP + array(Math.max(capacity, 16), REFERENCE) + (long) size * HASH_MAP_NODE;
+  }
+
+  /**
+   * 装箱整数占用的字节数，Integer缓存范围内的值不占用额外空间.
+   *
+   * @param value 值
+   * @return 字节数
+   */
+  static long boxed(int value) {
+    return value >= -128 && value <= 127 ? 0 : BOXED_INTEGER;
+  }
+
+  //第0桶为0，第i桶为[2^(i-1), 2^i)
+  private static int bucket(int value) {
+    return 32 - Integer.numberOfLeadingZeros(value);
+  }
+
+  /**
+   * 累计一个结点.
+   *
+   * @param word      单词
+   * @param outDegree 出度
+   * @param inDegree  入度
+   */
+  void node(String word, int outDegree, int inDegree) {
+    nodeCount++;
+    if (outDegree > 0) {
+      sourceCount++;
+    }
+    outDegrees[bucket(outDegree)]++;
+    inDegrees[bucket(inDegree)]++;
+    maxOutDegree = Math.max(maxOutDegree, outDegree);
+    maxInDegree = Math.max(maxInDegree, inDegree);
+    addHeapBytes("words", string(word.length()));
+  }
+
+  /**
+   * 累计一条边.
+   *
+   * @param from   起点
+   * @param to     终点
+   * @param weight 权值
+   */
+  void edge(String from, String to, int weight) {
+    edgeCount++;
+    totalWeight += weight;
+    weights[bucket(weight)]++;
+    maxWeight = Math.max(maxWeight, weight);
+    dotChars += from.length() + to.length() + Integer.toString(weight).length() + DOT_EDGE_CHARS;
+  }
+
+  void addHeapBytes(String structure, long bytes) {
+    heapBytes.merge(structure, bytes, Long::sum);
+  }
+
+  void addOffHeapBytes(String structure, long bytes) {
+    offHeapBytes.merge(structure, bytes, Long::sum);
+  }
+
+  public long nodeCount() {
+    return nodeCount;
+  }
+
+  /**
+   * 有出边的结点数.
+   *
+   * @return 结点数
+   */
+  public long sourceCount() {
+    return sourceCount;
+  }
+
+  public long edgeCount() {
+    return edgeCount;
+  }
+
+  public long totalWeight() {
+    return totalWeight;
+  }
+
+  public int maxOutDegree() {
+    return maxOutDegree;
+  }
+
+  public int maxInDegree() {
+    return maxInDegree;
+  }
+
+  public long[] outDegreeHistogram() {
+    return outDegrees.clone();
+  }
+
+  public long[] inDegreeHistogram() {
+    return inDegrees.clone();
+  }
+
+  public long[] weightHistogram() {
+    return weights.clone();
+  }
+
+  /**
+   * 按showDirectedGraph的格式为整个图生成DOT源码所需的字符数.
+   *
+   * @return 字符数
+   */
+  public long projectedDotChars() {
+    return dotChars;
+  }
+
+  /**
+   * 各数据结构在堆上的估计字节数，未构建的结构不出现.
+   *
+   * @return 结构名到字节数
+   */
+  public Map<String, Long> heapBytes() {
+    return new LinkedHashMap<>(heapBytes);
+  }
+
+  /**
+   * 各数据结构在堆外（直接内存或映射文件）的字节数.
+   *
+   * @return 结构名到字节数
+   */
+  public Map<String, Long> offHeapBytes() {
+    return new LinkedHashMap<>(offHeapBytes);
+  }
+
+  public long totalHeapBytes() {
+    return heapBytes.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  public long totalOffHeapBytes() {
+    return offHeapBytes.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * 生成统计报告.
+   *
+   * @return 多行文本
+   */
+  public String report() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("Nodes: ").append(nodeCount).append(" (with out-edges: ").append(sourceCount)
+        .append(")\n");
+    sb.append("Edges: ").append(edgeCount).append(" (total weight: ").append(totalWeight)
+        .append(")\n");
+    appendHistogram(sb, "Out-degree", outDegrees, maxOutDegree, edgeCount, nodeCount);
+    appendHistogram(sb, "In-degree", inDegrees, maxInDegree, edgeCount, nodeCount);
+    appendHistogram(sb, "Edge weight", weights, maxWeight, totalWeight, edgeCount);
+    sb.append("Projected DOT source: ").append(dotChars).append(" chars\n");
+    sb.append("Estimated heap bytes:\n");
+    appendBytes(sb, heapBytes);
+    sb.append("  total: ").append(totalHeapBytes()).append('\n');
+    sb.append("Off-heap bytes:\n");
+    appendBytes(sb, offHeapBytes);
+    sb.append("  total: ").append(totalOffHeapBytes());
+    return sb.toString();
+  }
+
+  private static void appendHistogram(StringBuilder sb, String name, long[] histogram, int max,
+                                      long sum, long count) {
+    sb.append(name).append(": max ").append(max).append(", mean ")
+        .append(String.format(Locale.ROOT, "%.2f", count == 0 ? 0.0 : (double) sum / count))
+        .append('\n');
+    for (int i = 0; i < histogram.length; i++) {
+      if (histogram[i] == 0) {
+        continue;
+      }
+      sb.append("  ");
+      if (i <= 1) {
+        sb.append(i);
+      } else {
+        sb.append(1L << (i - 1)).append('-').append((1L << i) - 1);
+      }
+      sb.append(": ").append(histogram[i]).append('\n');
+    }
+  }
+
+  private static void appendBytes(StringBuilder sb, Map<String, Long> bytes) {
+    for (Map.Entry<String, Long> entry : bytes.entrySet()) {
+      sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+    }
+  }
+}
@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GraphStatisticsTest {
+  private GraphProcessor graphProcessor;
+
+  @BeforeEach
+  void setUp() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("the", Map.of("quick", 1, "lazy", 3, "old", 200));
+    graphProcessor.graph.put("quick", Map.of("dog", 5));
+    graphProcessor.graph.put("lazy", Map.of("dog", 1));
+    graphProcessor.graph.put("old", Map.of("dog", 2));
+  }
+
+  @Test
+  void testCounts() {
+    GraphStatistics stats = graphProcessor.statistics();
+    assertEquals(5, stats.nodeCount());
+    assertEquals(4, stats.sourceCount());
+    assertEquals(6, stats.edgeCount());
+    assertEquals(212, stats.totalWeight());
+    assertEquals(3, stats.maxOutDegree());
+    assertEquals(3, stats.maxInDegree());
+    //出度：dog为0，quick、lazy、old为1，the为3
+    assertArrayEquals(new long[] {1, 3, 1}, Arrays.copyOf(stats.outDegreeHistogram(), 3));
+    //权值：1、1、2、3、5、200
+    assertArrayEquals(new long[] {0, 2, 2, 1, 0, 0, 0, 0, 1},
+        Arrays.copyOf(stats.weightHistogram(), 9));
+    //与showDirectedGraph生成的DOT源码长度一致
+    GraphViz gv = new GraphViz();
+    gv.addln(gv.start_graph());
+    graphProcessor.forEachEdge((from, to, weight) ->
+        gv.addEdgeWithLabel(from, to, String.valueOf(weight)));
+    gv.addln(gv.end_graph());
+    assertEquals(gv.getDotSource().length(), stats.projectedDotChars());
+  }
+
+  @Test
+  void testOffHeapMatchesHeap() {
+    GraphStatistics heap = graphProcessor.statistics();
+    assertTrue(heap.heapBytes().get("adjacency") > 0);
+    assertTrue(heap.heapBytes().get("reverse index") > 0);
+    assertTrue(heap.offHeapBytes().isEmpty());
+    graphProcessor.useOffHeapStore(null);
+    GraphStatistics offHeap = graphProcessor.statistics();
+    assertEquals(heap.nodeCount(), offHeap.nodeCount());
+    assertEquals(heap.edgeCount(), offHeap.edgeCount());
+    assertArrayEquals(heap.inDegreeHistogram(), offHeap.inDegreeHistogram());
+    assertEquals(heap.projectedDotChars(), offHeap.projectedDotChars());
+    //offsets、inOffsets各6个，totals 5个，sources 4个，其余5个缓冲区各6个
+    assertEquals((6 + 6 + 5 + 4 + 5 * 6) * Integer.BYTES,
+        offHeap.offHeapBytes().get("store (direct)"));
+    assertTrue(offHeap.report().contains("Edges: 6 (total weight: 212)"));
+  }
+}
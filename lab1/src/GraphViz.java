@@ -157,6 +157,15 @@ public class GraphViz
         this.graph = new StringBuilder();
     }
 
+    /**
+     * Returns the number of characters the dot source buffer can hold
+     * before it has to grow.
+     * @return Capacity of the dot source buffer.
+     */
+    public int getDotCapacity() {
+        return this.graph.capacity();
+    }
+
     /**
      * Returns the graph as an image in binary format.
      * @param dot_source Source of the graph to be drawn.
@@ -0,0 +1,230 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 多文件读入流水线.
+ * 第一阶段遍历目录找出所有普通文件；第二阶段由parallelism个线程并行解压（.gz）和分词（WordScanner），
+ * 每batchSize个单词打成一批放入容量为queueCapacity的阻塞队列；第三阶段由调用线程逐批取出交给图构建，
+ * 队列满时分词线程阻塞，内存占用与语料大小无关.
+ * 同一文件的各批由同一线程按顺序放入队列，每批附带前一批末尾的若干单词，保证跨批的边和上下文不丢失.
+ */
+public final class IngestPipeline {
+  static final int DEFAULT_BATCH_SIZE = 4096;
+  static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+  private final int parallelism;
+  private final int queueCapacity;
+  private final int batchSize;
+  private final int carryLength;
+  private final ProgressListener listener;
+  private final Opener opener;
+  //每个分词线程一个字典，同一线程处理的文件中重复的单词共用一个String
+  private final ThreadLocal<WordDictionary> dictionaries =
+      ThreadLocal.withInitial(WordDictionary::new);
+
+  /**
+   * 单个文件读入完成时的回调.
+   */
+  interface ProgressListener {
+    void fileCompleted(Path file, long words, int completed, int total);
+  }
+
+  /**
+   * 打开文件得到字符流.
+   */
+  interface Opener {
+    Reader open(Path file) throws IOException;
+  }
+
+  /**
+   * 一批单词.
+   */
+  static final class Batch {
+    final Path file;
+    //同一文件中紧接在本批之前的单词，文件开头时为空
+    final String[] carry;
+    final String[] words;
+    final int length;
+    //是否为该文件的最后一批
+    final boolean last;
+    final long fileWords;
+
+    Batch(Path file, String[] carry, String[] words, int length, boolean last, long fileWords) {
+      this.file = file;
+      this.carry = carry;
+      this.words = words;
+      this.length = length;
+      this.last = last;
+      this.fileWords = fileWords;
+    }
+  }
+
+  /**
+   * 创建流水线.
+   *
+   * @param parallelism   分词线程数
+   * @param queueCapacity 队列中最多缓存的批数
+   * @param batchSize     每批单词数
+   * @param carryLength   每批附带的前文单词数
+   * @param listener      进度回调
+   */
+  public IngestPipeline(int parallelism, int queueCapacity, int batchSize, int carryLength,
+                        ProgressListener listener) {
+    this(parallelism, queueCapacity, batchSize, carryLength, listener, IngestPipeline::open);
+  }
+
+  IngestPipeline(int parallelism, int queueCapacity, int batchSize, int carryLength,
+                 ProgressListener listener, Opener opener) {
+    this.parallelism = Math.max(1, parallelism);
+    this.queueCapacity = Math.max(1, queueCapacity);
+    this.batchSize = Math.max(1, batchSize);
+    this.carryLength = carryLength;
+    this.listener = listener;
+    this.opener = opener;
+  }
+
+  /**
+   * 第一阶段：找出路径下的所有普通文件，按路径排序.
+   *
+   * @param root 文件或目录
+   * @return 文件列表
+   * @throws IOException 遍历目录失败
+   */
+  static List<Path> discover(Path root) throws IOException {
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * 读入路径下的所有文件，在调用线程中把每批单词交给consumer.
+   *
+   * @param root     文件或目录
+   * @param consumer 图构建
+   * @throws IOException 遍历目录失败
+   */
+  public void run(Path root, Consumer<Batch> consumer) throws IOException {
+    List<Path> files = discover(root);
+    BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(queueCapacity);
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism, r -> {
+      Thread t = new Thread(r, "ingest-worker");
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      for (Path file : files) {
+        workers.execute(() -> tokenize(file, queue));
+      }
+      int completed = 0;
+      while (completed < files.size()) {
+        Batch batch = queue.take();
+        consumer.accept(batch);
+        if (batch.last) {
+          completed++;
+          listener.fileCompleted(batch.file, batch.fileWords, completed, files.size());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  //第二阶段：解压、分词并分批放入队列；读取失败或抛出非受检异常时仍放入结束批，
+  //否则run会一直等待该文件；只有被中断（run已退出）时不放入
+  private void tokenize(Path file, BlockingQueue<Batch> queue) {
+    WordScanner scanner = new WordScanner(dictionaries.get(), true);
+    Batcher batcher = new Batcher(file, scanner.dictionary());
+    boolean interrupted = false;
+    try (Reader reader = opener.open(file)) {
+      char[] buffer = new char[8192];
+      int n;
+      while ((n = reader.read(buffer)) > 0) {
+        scanner.feed(buffer, 0, n, batcher);
+        while (!batcher.ready.isEmpty()) {
+          queue.put(batcher.ready.poll());
+        }
+      }
+      scanner.finish(batcher);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Error reading " + file + ": " + e);
+    } catch (InterruptedException e) {
+      interrupted = true;
+      Thread.currentThread().interrupt();
+    } finally {
+      if (!interrupted) {
+        putLast(batcher, queue);
+      }
+    }
+  }
+
+  private void putLast(Batcher batcher, BlockingQueue<Batch> queue) {
+    try {
+      while (!batcher.ready.isEmpty()) {
+        queue.put(batcher.ready.poll());
+      }
+      queue.put(new Batch(batcher.file, batcher.carry, batcher.words, batcher.length, true,
+          batcher.total));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 单个文件的分批状态：单词编号转为字典中的String，每满batchSize个打成一批，等待放入队列.
+   */
+  private final class Batcher implements IntConsumer {
+    private final Path file;
+    private final WordDictionary dictionary;
+    private final Queue<Batch> ready = new ArrayDeque<>();
+    private String[] carry = new String[0];
+    private String[] words = new String[batchSize];
+    private int length;
+    private long total;
+
+    Batcher(Path file, WordDictionary dictionary) {
+      this.file = file;
+      this.dictionary = dictionary;
+    }
+
+    @Override
+    public void accept(int id) {
+      words[length++] = dictionary.word(id);
+      total++;
+      if (length == batchSize) {
+        ready.add(new Batch(file, carry, words, length, false, total));
+        carry = Arrays.copyOfRange(words, Math.max(0, length - carryLength), length);
+        words = new String[batchSize];
+        length = 0;
+      }
+    }
+  }
+
+  private static Reader open(Path file) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(file));
+    if (file.getFileName().toString().endsWith(".gz")) {
+      in = new GZIPInputStream(in);
+    }
+    return new InputStreamReader(in, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IngestPipelineTest {
+  @TempDir
+  Path dir;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.write(dir.resolve("a.txt"),
+        "The quick fox.\nThe quick dog".getBytes(StandardCharsets.UTF_8));
+    Files.createDirectories(dir.resolve("sub"));
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("sub/b.gz")))) {
+      out.write("quick dog barks".getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void testReadFilesAndGenerateGraph() {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    List<String> progress = new ArrayList<>();
+    graphProcessor.readFilesAndGenerateGraph(dir.toString(), 2,
+        (file, words, completed, total) -> progress.add(completed + "/" + total + ":" + words));
+    assertEquals(List.of("1/2", "2/2"), List.of(progress.get(0).substring(0, 3),
+        progress.get(1).substring(0, 3)));
+    assertEquals(Map.of("quick", 2), graphProcessor.graph.get("the"));
+    assertEquals(Map.of("fox", 1, "dog", 2), graphProcessor.graph.get("quick"));
+    assertEquals(Map.of("the", 1), graphProcessor.graph.get("fox"));
+    assertEquals(Map.of("barks", 1), graphProcessor.graph.get("dog"));
+    assertEquals(2, graphProcessor.inDegree("quick") + graphProcessor.inDegree("fox"));
+  }
+
+  @Test
+  void testBatchesCarryPrecedingWords() throws IOException {
+    List<String> edges = new ArrayList<>();
+    IngestPipeline pipeline = new IngestPipeline(1, 1, 2, 2, (file, words, completed, total) -> {
+    });
+    pipeline.run(dir.resolve("a.txt"), batch -> {
+      String previous = batch.carry.length == 0 ? null : batch.carry[batch.carry.length - 1];
+      for (int i = 0; i < batch.length; i++) {
+        if (previous != null) {
+          edges.add(previous + "->" + batch.words[i]);
+        }
+        previous = batch.words[i];
+      }
+    });
+    assertEquals(List.of("the->quick", "quick->fox", "fox->the", "the->quick", "quick->dog"),
+        edges);
+  }
+
+  @Test
+  void testNgramAcrossBatches() {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    graphProcessor.setOrder(3);
+    graphProcessor.readFilesAndGenerateGraph(dir.resolve("a.txt").toString(), 1,
+        (file, words, completed, total) -> {
+        });
+    assertEquals("The bridge words from the quick to the are: fox.",
+        graphProcessor.queryBridgeWords("the quick", "the"));
+  }
+
+  @Test
+  void testFailedWorkerStillCompletesFile() {
+    List<String> words = new ArrayList<>();
+    List<String> progress = new ArrayList<>();
+    IngestPipeline pipeline = new IngestPipeline(2, 1, 2, 1,
+        (file, count, completed, total) -> progress.add(file.getFileName() + ":" + count),
+        file -> {
+          if (file.toString().endsWith(".gz")) {
+            throw new IllegalStateException("corrupt");
+          }
+          return new StringReader("the quick fox");
+        });
+    //分词线程抛出非受检异常时run不应一直等待
+    assertTimeoutPreemptively(Duration.ofSeconds(10), () -> pipeline.run(dir, batch -> {
+      for (int i = 0; i < batch.length; i++) {
+        words.add(batch.words[i]);
+      }
+    }));
+    assertEquals(List.of("the", "quick", "fox"), words);
+    assertEquals(2, progress.size());
+    assertTrue(progress.contains("b.gz:0"));
+  }
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 前k条最短无环路径（Yen算法）和全部等长最短路径.
+ * 先沿入边求出各结点到终点的最短距离（反向最短路径树），之后的每次偏离搜索都以它作为A*的启发函数：
+ * 删除结点和边只会使距离变大，因此该启发函数始终可采纳且一致，搜索基本只沿最短路径展开.
+ * 同一轮中不同偏离结点的搜索互不相关，并行执行.
+ * 等长的路径按单词序列的字典序排列，与结点编号（即读入顺序）无关.
+ */
+public final class KShortestPaths {
+  private final OffHeapGraph g;
+  private final int source;
+  private final int target;
+  //各结点到target的最短距离，不可达为Integer.MAX_VALUE
+  private final int[] toTarget;
+  private final ConcurrentLinkedQueue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+  /**
+   * 一条路径及其长度.
+   */
+  static final class Path {
+    final int[] nodes;
+    final int length;
+
+    Path(int[] nodes, int length) {
+      this.nodes = nodes;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Path && Arrays.equals(nodes, ((Path) o).nodes);
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(nodes);
+    }
+  }
+
+  /**
+   * 构建查询，计算反向最短路径树.
+   *
+   * @param g      图
+   * @param source 起点编号
+   * @param target 终点编号
+   */
+  public KShortestPaths(OffHeapGraph g, int source, int target) {
+    this.g = g;
+    this.source = source;
+    this.target = target;
+    this.toTarget = new int[g.nodeCount()];
+    g.reverseShortestPaths(target, Integer.MAX_VALUE, toTarget);
+  }
+
+  //先按长度，再按单词序列比较
+  private int compare(Path a, Path b) {
+    if (a.length != b.length) {
+      return Integer.compare(a.length, b.length);
+    }
+    for (int i = 0; i < Math.min(a.nodes.length, b.nodes.length); i++) {
+      if (a.nodes[i] != b.nodes[i]) {
+        return g.word(a.nodes[i]).compareTo(g.word(b.nodes[i]));
+      }
+    }
+    return Integer.compare(a.nodes.length, b.nodes.length);
+  }
+
+  /**
+   * 按长度升序求前k条无环路径，等长的按单词序列排列.
+   * 与第k条等长的路径全部找出后再排序截断，因此哪条等长路径被保留只取决于图本身.
+   *
+   * @param k 条数
+   * @return 路径列表，可能少于k条
+   */
+  public List<Path> kShortest(int k) {
+    List<Path> result = new ArrayList<>();
+    if (k <= 0 || toTarget[source] == Integer.MAX_VALUE) {
+      return result;
+    }
+    result.add(search(source, new int[] {source}, 0, new int[0]));
+    PriorityQueue<Path> candidates = new PriorityQueue<>(this::compare);
+    Set<Path> seen = new HashSet<>(result);
+    while (true) {
+      Path previous = result.get(result.size() - 1);
+      //上一条路径上的每个结点都作为偏离结点，并行搜索
+      List<Path> spurs = IntStream.range(0, previous.nodes.length - 1).parallel()
+          .mapToObj(i -> spurPath(previous, i, result))
+          .filter(p -> p != null)
+          .collect(Collectors.toList());
+      for (Path p : spurs) {
+        if (seen.add(p)) {
+          candidates.add(p);
+        }
+      }
+      //Yen算法按长度非降序产生路径，候选都比第k条长时不会再有等长的路径
+      if (candidates.isEmpty()
+          || result.size() >= k && candidates.peek().length > result.get(k - 1).length) {
+        break;
+      }
+      result.add(candidates.poll());
+    }
+    result.sort(this::compare);
+    return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+  }
+
+  //以previous的第i个结点为偏离结点，求根路径相同、偏离边不同的最短路径
+  private Path spurPath(Path previous, int i, List<Path> found) {
+    int[] root = Arrays.copyOf(previous.nodes, i + 1);
+    int rootLength = 0;
+    for (int j = 0; j < i; j++) {
+      rootLength += g.weight(g.findEdge(root[j], root[j + 1]));
+    }
+    //已找到的路径中，根路径与root相同的，其偏离边都要删除
+    int[] blockedTargets = new int[found.size()];
+    int blocked = 0;
+    for (Path p : found) {
+      if (p.nodes.length > i + 1 && Arrays.equals(p.nodes, 0, i + 1, root, 0, i + 1)) {
+        blockedTargets[blocked++] = p.nodes[i + 1];
+      }
+    }
+    return search(root[i], root, rootLength, Arrays.copyOf(blockedTargets, blocked));
+  }
+
+  //从spur出发做A*搜索，不经过root中除spur外的结点，也不经过spur到blockedTargets的边；返回root加上偏离路径
+  private Path search(int spur, int[] root, int rootLength, int[] blockedTargets) {
+    Workspace w = workspaces.poll();
+    if (w == null) {
+      w = new Workspace(g.nodeCount());
+    }
+    try {
+      return w.search(spur, root, rootLength, blockedTargets);
+    } finally {
+      workspaces.add(w);
+    }
+  }
+
+  /**
+   * 全部等长最短路径.
+   * 边(u, v)在某条最短路径上当且仅当w(u, v) + toTarget[v] == toTarget[u]，沿这些边深度优先枚举.
+   *
+   * @param limit 最多返回的条数
+   * @return 路径列表
+   */
+  public List<Path> allShortest(int limit) {
+    List<Path> result = new ArrayList<>();
+    if (toTarget[source] == Integer.MAX_VALUE) {
+      return result;
+    }
+    int length = toTarget[source];
+    int[] path = new int[16];
+    int[] cursor = new int[16];
+    path[0] = source;
+    cursor[0] = g.firstEdge(source);
+    int depth = 1;
+    while (depth > 0 && result.size() < limit) {
+      int u = path[depth - 1];
+      if (u == target) {
+        result.add(new Path(Arrays.copyOf(path, depth), length));
+        depth--;
+        continue;
+      }
+      int e = cursor[depth - 1];
+      if (e == g.endEdge(u)) {
+        depth--;
+        continue;
+      }
+      cursor[depth - 1]++;
+      int v = g.target(e);
+      if (toTarget[v] != Integer.MAX_VALUE && g.weight(e) + toTarget[v] == toTarget[u]) {
+        if (depth == path.length) {
+          path = Arrays.copyOf(path, depth * 2);
+          cursor = Arrays.copyOf(cursor, depth * 2);
+        }
+        path[depth] = v;
+        cursor[depth] = g.firstEdge(v);
+        depth++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 单个线程的搜索状态，用时间戳代替每次清空数组.
+   */
+  private final class Workspace {
+    private final int[] dist;
+    private final int[] prev;
+    private final int[] visited;
+    private final int[] blocked;
+    private final LongMinHeap queue = new LongMinHeap(64);
+    private int stamp;
+
+    Workspace(int n) {
+      dist = new int[n];
+      prev = new int[n];
+      visited = new int[n];
+      blocked = new int[n];
+    }
+
+    Path search(int spur, int[] root, int rootLength, int[] blockedTargets) {
+      stamp++;
+      for (int j = 0; j < root.length - 1; j++) {
+        blocked[root[j]] = stamp;
+      }
+      queue.clear();
+      dist[spur] = 0;
+      prev[spur] = -1;
+      visited[spur] = stamp;
+      queue.add(LongMinHeap.pack(toTarget[spur], spur));
+      while (!queue.isEmpty()) {
+        long top = queue.poll();
+        int u = LongMinHeap.value(top);
+        if (LongMinHeap.priority(top) > dist[u] + toTarget[u]) {
+          continue;
+        }
+        if (u == target) {
+          return join(root, rootLength, u);
+        }
+        for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+          int v = g.target(e);
+          if (blocked[v] == stamp || toTarget[v] == Integer.MAX_VALUE
+              || (u == spur && contains(blockedTargets, v))) {
+            continue;
+          }
+          int newDist = dist[u] + g.weight(e);
+          if (visited[v] != stamp || newDist < dist[v]) {
+            visited[v] = stamp;
+            dist[v] = newDist;
+            prev[v] = u;
+            queue.add(LongMinHeap.pack(newDist + toTarget[v], v));
+          }
+        }
+      }
+      return null;
+    }
+
+    private Path join(int[] root, int rootLength, int end) {
+      int count = 0;
+      for (int at = end; at != -1; at = prev[at]) {
+        count++;
+      }
+      int[] nodes = Arrays.copyOf(root, root.length - 1 + count);
+      int i = nodes.length - 1;
+      for (int at = end; at != -1; at = prev[at]) {
+        nodes[i--] = at;
+      }
+      return new Path(nodes, rootLength + dist[end]);
+    }
+  }
+
+  private static boolean contains(int[] values, int value) {
+    for (int v : values) {
+      if (v == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 把路径转换为单词序列.
+   *
+   * @param path 路径
+   * @return 单词序列
+   */
+  public List<String> words(Path path) {
+    List<String> result = new ArrayList<>();
+    for (int node : path.nodes) {
+      result.add(g.word(node));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KShortestPathsTest {
+  private GraphProcessor graphProcessor;
+
+  @BeforeEach
+  void setUp() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("c", Map.of("d", 3, "e", 2));
+    graphProcessor.graph.put("d", Map.of("f", 4));
+    graphProcessor.graph.put("e", Map.of("d", 1, "f", 2, "g", 3));
+    graphProcessor.graph.put("f", Map.of("g", 3, "h", 1));
+    graphProcessor.graph.put("g", Map.of("h", 2));
+    graphProcessor.graph.put("h", new HashMap<>());
+  }
+
+  @Test
+  void testKShortestPaths_Yen() {
+    String[] paths = graphProcessor.calcKShortestPaths("c", "h", 4).split("\n");
+    assertEquals(4, paths.length);
+    assertEquals("Path 1: c -> e -> f -> h (Length: 5)", paths[0]);
+    assertEquals("Path 2: c -> e -> g -> h (Length: 7)", paths[1]);
+    //c -> d -> f -> h与c -> e -> d -> f -> h等长
+    assertEquals(Set.of("c -> d -> f -> h (Length: 8)", "c -> e -> d -> f -> h (Length: 8)"),
+        Set.of(paths[2].substring(8), paths[3].substring(8)));
+  }
+
+  @Test
+  void testKShortestPaths_TiesBrokenByWords() throws IOException {
+    //c -> d -> f -> h、c -> e -> d -> f -> h和c -> e -> f -> g -> h三条等长
+    graphProcessor.graph.put("f", Map.of("g", 2, "h", 1));
+    String expected = "Path 1: c -> e -> f -> h (Length: 5)\n"
+        + "Path 2: c -> e -> g -> h (Length: 7)\n"
+        + "Path 3: c -> d -> f -> h (Length: 8)\n"
+        + "Path 4: c -> e -> d -> f -> h (Length: 8)";
+    assertEquals(expected, graphProcessor.calcKShortestPaths("c", "h", 4));
+    //按两种顺序编号结点，结果不变
+    for (String[] order : new String[][] {{"c", "d", "e", "f", "g", "h"},
+        {"h", "g", "f", "e", "d", "c"}}) {
+      WordDictionary dictionary = new WordDictionary();
+      for (String word : order) {
+        dictionary.intern(word);
+      }
+      OffHeapGraph store = OffHeapGraph.build(graphProcessor.graph, dictionary, null);
+      KShortestPaths finder = new KShortestPaths(store, store.id("c"), store.id("h"));
+      List<String> paths = new ArrayList<>();
+      for (KShortestPaths.Path path : finder.kShortest(4)) {
+        paths.add(String.join(" ", finder.words(path)));
+      }
+      assertEquals(List.of("c e f h", "c e g h", "c d f h", "c e d f h"), paths);
+    }
+  }
+
+  @Test
+  void testKShortestPaths_FewerThanK() {
+    assertEquals("Path 1: g -> h (Length: 2)", graphProcessor.calcKShortestPaths("g", "h", 5));
+    assertEquals("No path from h to c!", graphProcessor.calcKShortestPaths("h", "c", 5));
+  }
+
+  @Test
+  void testAllShortestPaths() {
+    graphProcessor.graph.put("c", Map.of("d", 1, "e", 2));
+    graphProcessor.graph.put("d", Map.of("f", 3));
+    String[] paths = graphProcessor.calcAllShortestPaths("c", "h", 10).split("\n");
+    assertEquals(Set.of("c -> d -> f -> h (Length: 5)", "c -> e -> f -> h (Length: 5)"),
+        Set.of(paths[0].substring(8), paths[1].substring(8)));
+    assertEquals(2, paths.length);
+  }
+}
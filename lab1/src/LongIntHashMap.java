@@ -0,0 +1,111 @@
+import java.util.Arrays;
+
+/**
+ * long到int的开放定址哈希表（线性探测）.
+ * key必须非负，-1用作空槽标记；不支持删除.
+ */
+final class LongIntHashMap {
+  private static final long EMPTY = -1L;
+
+  private long[] keys;
+  private int[] values;
+  private int size;
+  private int mask;
+
+  LongIntHashMap(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(expected * 2, 16) - 1) << 1;
+    allocate(capacity);
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    mask = capacity - 1;
+  }
+
+  private int slot(long key) {
+    int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    while (keys[i] != EMPTY && keys[i] != key) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  int size() {
+    return size;
+  }
+
+  int get(long key, int defaultValue) {
+    int i = slot(key);
+    return keys[i] == EMPTY ? defaultValue : values[i];
+  }
+
+  boolean containsKey(long key) {
+    return keys[slot(key)] != EMPTY;
+  }
+
+  void put(long key, int value) {
+    int i = slot(key);
+    if (keys[i] == EMPTY) {
+      keys[i] = key;
+      if (++size * 2 > keys.length) {
+        values[i] = value;
+        grow();
+        return;
+      }
+    }
+    values[i] = value;
+  }
+
+  /**
+   * 把key对应的值加上delta，key不存在时视为0.
+   *
+   * @param key   键
+   * @param delta 增量
+   */
+  void addTo(long key, int delta) {
+    int i = slot(key);
+    if (keys[i] == EMPTY) {
+      put(key, delta);
+    } else {
+      values[i] += delta;
+    }
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(oldKeys.length * 2);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY) {
+        int j = slot(oldKeys[i]);
+        keys[j] = oldKeys[i];
+        values[j] = oldValues[i];
+      }
+    }
+  }
+
+  int capacity() {
+    return keys.length;
+  }
+
+  long estimatedBytes() {
+    return GraphStatistics.array(keys.length, Long.BYTES)
+        + GraphStatistics.array(values.length, Integer.BYTES);
+  }
+
+  /**
+   * 第i个槽的key，空槽返回-1.
+   *
+   * @param i 槽下标
+   * @return key
+   */
+  long keyAt(int i) {
+    return keys[i];
+  }
+
+  int valueAt(int i) {
+    return values[i];
+  }
+}
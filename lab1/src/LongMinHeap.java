@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+/**
+ * 基于long数组的二叉最小堆.
+ * 高32位存优先级（非负距离），低32位存结点编号，避免最短路径等算法中的装箱和逐条边的对象分配.
+ */
+final class LongMinHeap {
+  private long[] heap;
+  private int size;
+
+  LongMinHeap(int capacity) {
+    heap = new long[Math.max(capacity, 16)];
+  }
+
+  static long pack(int priority, int value) {
+    return ((long) priority << 32) | (value & 0xffffffffL);
+  }
+
+  static int priority(long entry) {
+    return (int) (entry >>> 32);
+  }
+
+  static int value(long entry) {
+    return (int) entry;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+  }
+
+  void add(long entry) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    int i = size++;
+    //上浮
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (heap[parent] <= entry) {
+        break;
+      }
+      heap[i] = heap[parent];
+      i = parent;
+    }
+    heap[i] = entry;
+  }
+
+  long poll() {
+    long top = heap[0];
+    long last = heap[--size];
+    int i = 0;
+    //下沉
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (heap[child] >= last) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return top;
+  }
+}
@@ -0,0 +1,500 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+/**
+ * n阶（n-gram）有向图.
+ * 结点是n-1个单词组成的上下文，边是n-gram：上下文(w1..w(n-1))经单词wn转移到上下文(w2..wn)，权值为出现次数.
+ * 单词和上下文都编号为int：上下文表按内容查找编号，不拼接字符串；n-gram压缩成(上下文编号 &lt;&lt; 32 | 单词编号)，
+ * 词表大小只受int范围限制.
+ * 读入时用基本类型哈希表计数，查询前整理成按key排序的数组：同一上下文的所有出边在数组中连续，
+ * 按上下文编号存放偏移即构成CSR.
+ */
+public final class NgramGraph {
+  static final int MIN_ORDER = 2;
+  static final int MAX_ORDER = 4;
+
+  private final int order;
+  //上下文的单词数n-1
+  private final int width;
+  //单词字典，可以与GraphProcessor共用
+  private final WordDictionary dictionary;
+  //第c个上下文的单词为contextWords[c * width, (c + 1) * width)
+  private int[] contextWords = new int[1024];
+  private int contextSize;
+  //上下文哈希槽中存放编号 + 1，0表示空
+  private int[] contextTable = new int[1024];
+  //读入阶段的计数表，整理后置为null
+  private LongIntHashMap counts = new LongIntHashMap(1024);
+  //整理后的n-gram（升序）、权值，每个上下文的出边起始下标，以及有出边的上下文
+  private long[] keys = new long[0];
+  private int[] weights = new int[0];
+  private int[] offsets = {0};
+  private int[] active = new int[0];
+  //读入时的滑动窗口，保存最近的n-1个单词
+  private final int[] window;
+  private int filled;
+
+  /**
+   * 创建使用独立字典的n阶图.
+   *
+   * @param order 阶数n
+   */
+  public NgramGraph(int order) {
+    this(order, new WordDictionary());
+  }
+
+  /**
+   * 创建n阶图，单词编号取自给定的字典.
+   *
+   * @param order      阶数n
+   * @param dictionary 单词字典
+   */
+  public NgramGraph(int order, WordDictionary dictionary) {
+    if (order < MIN_ORDER || order > MAX_ORDER) {
+      throw new IllegalArgumentException("Order must be between " + MIN_ORDER + " and "
+          + MAX_ORDER + ": " + order);
+    }
+    this.order = order;
+    this.dictionary = dictionary;
+    this.width = order - 1;
+    this.window = new int[width];
+  }
+
+  public int order() {
+    return order;
+  }
+
+  /**
+   * 开始新的单词序列，之前的单词不再作为上下文.
+   */
+  public void reset() {
+    filled = 0;
+  }
+
+  /**
+   * 只把单词放入上下文窗口，不计数；用于接续上一段的末尾单词.
+   *
+   * @param word 单词
+   */
+  public void prime(String word) {
+    push(dictionary.intern(word));
+  }
+
+  /**
+   * 按字典中的编号把单词放入上下文窗口，不计数.
+   *
+   * @param id 单词编号
+   */
+  void prime(int id) {
+    push(id);
+  }
+
+  /**
+   * 读入一个单词，窗口已满n-1个单词时记录一次n-gram.
+   *
+   * @param word 单词
+   */
+  public void accept(String word) {
+    accept(dictionary.intern(word));
+  }
+
+  /**
+   * 按字典中的编号读入一个单词.
+   *
+   * @param id 单词编号
+   */
+  void accept(int id) {
+    if (filled >= width) {
+      counts().addTo(((long) internContext() << 32) | id, 1);
+    }
+    push(id);
+  }
+
+  //单词移入窗口；窗口已满时为它对应的上下文编号，使每个n-gram的终点上下文都有编号
+  private void push(int id) {
+    System.arraycopy(window, 1, window, 0, width - 1);
+    window[width - 1] = id;
+    filled++;
+    if (filled >= width) {
+      internContext();
+    }
+  }
+
+  private static int mix(int hash) {
+    return hash * 0x9E3779B9 ^ (hash >>> 16);
+  }
+
+  //由words[start, start + width - 1)和last组成的上下文的编号，不存在返回-1
+  private int findContext(int[] words, int start, int last) {
+    int mask = contextTable.length - 1;
+    for (int slot = contextSlot(words, start, last); contextTable[slot] != 0;
+         slot = (slot + 1) & mask) {
+      int c = contextTable[slot] - 1;
+      if (matches(c, words, start, last)) {
+        return c;
+      }
+    }
+    return -1;
+  }
+
+  private int contextSlot(int[] words, int start, int last) {
+    int hash = 0;
+    for (int i = 0; i < width - 1; i++) {
+      hash = 31 * hash + words[start + i];
+    }
+    return mix(31 * hash + last) & (contextTable.length - 1);
+  }
+
+  private boolean matches(int c, int[] words, int start, int last) {
+    int base = c * width;
+    for (int i = 0; i < width - 1; i++) {
+      if (contextWords[base + i] != words[start + i]) {
+        return false;
+      }
+    }
+    return contextWords[base + width - 1] == last;
+  }
+
+  //窗口对应的上下文编号，不存在时加入
+  private int internContext() {
+    int c = findContext(window, 0, window[width - 1]);
+    if (c >= 0) {
+      return c;
+    }
+    if ((contextSize + 1) * width > contextWords.length) {
+      contextWords = Arrays.copyOf(contextWords, contextWords.length * 2);
+    }
+    c = contextSize++;
+    System.arraycopy(window, 0, contextWords, c * width, width);
+    if (contextSize * 2 > contextTable.length) {
+      contextTable = new int[contextTable.length * 2];
+      for (int i = 0; i < contextSize; i++) {
+        insertContext(i);
+      }
+    } else {
+      insertContext(c);
+    }
+    return c;
+  }
+
+  private void insertContext(int c) {
+    int mask = contextTable.length - 1;
+    int slot = contextSlot(contextWords, c * width, contextWords[c * width + width - 1]);
+    while (contextTable[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    contextTable[slot] = c + 1;
+  }
+
+  //需要继续计数时，由整理后的数组还原计数表
+  private LongIntHashMap counts() {
+    if (counts == null) {
+      counts = new LongIntHashMap(keys.length);
+      for (int i = 0; i < keys.length; i++) {
+        counts.put(keys[i], weights[i]);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * 把计数表整理成排序数组，读入结束后、查询之前调用.
+   */
+  public void freeze() {
+    if (counts == null && offsets.length == contextSize + 1) {
+      return;
+    }
+    if (counts != null) {
+      keys = new long[counts.size()];
+      int n = 0;
+      for (int i = 0; i < counts.capacity(); i++) {
+        if (counts.keyAt(i) >= 0) {
+          keys[n++] = counts.keyAt(i);
+        }
+      }
+      Arrays.sort(keys);
+      weights = new int[n];
+      for (int i = 0; i < n; i++) {
+        weights[i] = counts.get(keys[i], 0);
+      }
+      counts = null;
+    }
+    offsets = new int[contextSize + 1];
+    for (long key : keys) {
+      offsets[(int) (key >>> 32) + 1]++;
+    }
+    int activeCount = 0;
+    for (int c = 0; c < contextSize; c++) {
+      if (offsets[c + 1] > 0) {
+        activeCount++;
+      }
+      offsets[c + 1] += offsets[c];
+    }
+    active = new int[activeCount];
+    for (int c = 0, a = 0; c < contextSize; c++) {
+      if (offsets[c + 1] > offsets[c]) {
+        active[a++] = c;
+      }
+    }
+  }
+
+  public int ngramCount() {
+    freeze();
+    return keys.length;
+  }
+
+  /**
+   * 有出边的上下文数.
+   *
+   * @return 上下文数
+   */
+  public int contextCount() {
+    freeze();
+    return active.length;
+  }
+
+  /**
+   * 估计占用的堆内存字节数，不含单词字典.
+   *
+   * @return 字节数
+   */
+  public long estimatedBytes() {
+    return GraphStatistics.array(contextWords.length, Integer.BYTES)
+        + GraphStatistics.array(contextTable.length, Integer.BYTES)
+        + (counts == null ? 0 : counts.estimatedBytes())
+        + GraphStatistics.array(keys.length, Long.BYTES)
+        + GraphStatistics.array(weights.length, Integer.BYTES)
+        + GraphStatistics.array(offsets.length, Integer.BYTES)
+        + GraphStatistics.array(active.length, Integer.BYTES);
+  }
+
+  private static int word(long key) {
+    return (int) key;
+  }
+
+  //上下文c之后接单词w得到的上下文，不存在返回-1
+  private int shift(int c, int w) {
+    return findContext(contextWords, c * width + 1, w);
+  }
+
+  //上下文context之后接单词word的次数
+  private int count(int context, int word) {
+    int i = Arrays.binarySearch(keys, offsets[context], offsets[context + 1],
+        ((long) context << 32) | word);
+    return i < 0 ? 0 : weights[i];
+  }
+
+  /**
+   * 把短语的最后n-1个单词解析为上下文.
+   *
+   * @param phrase 短语
+   * @return 上下文编号；单词不足或不在图中时返回-1，单词都在图中但从未相邻出现时返回-2
+   */
+  int context(CharSequence phrase) {
+    ContextParser parser = new ContextParser();
+    WordScanner scanner = new WordScanner(dictionary, false);
+    scanner.feed(phrase, parser);
+    scanner.finish(parser);
+    if (parser.tokens < width || parser.lastUnknown >= parser.tokens - width) {
+      return -1;
+    }
+    int c = findContext(parser.tail, 0, parser.tail[width - 1]);
+    return c < 0 ? -2 : c;
+  }
+
+  /**
+   * 按与短语相同的方式（逐字符转为小写，非字母为分隔符）查找单个单词.
+   *
+   * @param text 单词
+   * @return 单词编号；不在图中或不是恰好一个单词时返回-1
+   */
+  int wordId(CharSequence text) {
+    int[] found = {-1, 0};
+    IntConsumer sink = id -> {
+      found[0] = id;
+      found[1]++;
+    };
+    WordScanner scanner = new WordScanner(dictionary, false);
+    scanner.feed(text, sink);
+    scanner.finish(sink);
+    return found[1] == 1 ? found[0] : -1;
+  }
+
+  //逐个接收短语中的单词编号，滚动保留最后n-1个；不在字典中的单词记下位置
+  private final class ContextParser implements IntConsumer {
+    private final int[] tail = new int[width];
+    private int tokens;
+    private int lastUnknown = -1;
+
+    @Override
+    public void accept(int id) {
+      if (id < 0) {
+        lastUnknown = tokens;
+      } else {
+        System.arraycopy(tail, 1, tail, 0, width - 1);
+        tail[width - 1] = id;
+      }
+      tokens++;
+    }
+  }
+
+  /**
+   * 上下文对应的短语.
+   *
+   * @param context 上下文编号
+   * @return 以空格分隔的单词
+   */
+  String describe(int context) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < width; i++) {
+      if (i > 0) {
+        sb.append(' ');
+      }
+      sb.append(dictionary.word(contextWords[context * width + i]));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * 查询桥接词：phrase之后接b，再以新上下文接word2.
+   *
+   * @param phrase 短语，取最后n-1个单词作为上下文
+   * @param word2  单词
+   * @return 返回一个字符串，包含全部桥接词
+   */
+  public String queryBridgeWords(String phrase, String word2) {
+    freeze();
+    int c = context(phrase);
+    int w2 = wordId(word2);
+    if (c < 0 || w2 < 0 || offsets[c + 1] == offsets[c]) {
+      return "No " + phrase + " or " + word2 + " in the graph!";
+    }
+    List<String> bridgeWords = new ArrayList<>();
+    for (int e = offsets[c]; e < offsets[c + 1]; e++) {
+      int b = word(keys[e]);
+      int next = shift(c, b);
+      if (next >= 0 && count(next, w2) > 0) {
+        bridgeWords.add(dictionary.word(b));
+      }
+    }
+    if (bridgeWords.isEmpty()) {
+      return "No bridge words from " + phrase + " to " + word2 + "!";
+    }
+    return "The bridge words from " + phrase + " to " + word2 + " are: "
+        + String.join(", ", bridgeWords) + ".";
+  }
+
+  /**
+   * 计算两个上下文之间的最短路径.
+   * 距离和前驱上下文都存放在基本类型哈希表中，只为访问到的上下文占用空间.
+   *
+   * @param phrase1 起始短语
+   * @param phrase2 终点短语
+   * @return 返回最短路径
+   */
+  public String calcShortestPath(String phrase1, String phrase2) {
+    return calcShortestPath(phrase1, phrase2, null);
+  }
+
+  /**
+   * 计算两个上下文之间的最短路径，每取出一个上下文检查一次取消标记.
+   *
+   * @param phrase1 起始短语
+   * @param phrase2 终点短语
+   * @param token   取消标记，为null时不检查
+   * @return 返回最短路径
+   */
+  public String calcShortestPath(String phrase1, String phrase2, CancellationToken token) {
+    freeze();
+    int c1 = context(phrase1);
+    int c2 = context(phrase2);
+    if (c1 == -1 || c2 == -1) {
+      return "No " + phrase1 + " or " + phrase2 + " in the graph!";
+    }
+    if (c1 < 0 || c2 < 0) {
+      return "No path from " + phrase1 + " to " + phrase2 + "!";
+    }
+    LongIntHashMap dist = new LongIntHashMap(64);
+    LongIntHashMap prev = new LongIntHashMap(64);
+    LongMinHeap queue = new LongMinHeap(64);
+    dist.put(c1, 0);
+    queue.add(LongMinHeap.pack(0, c1));
+    while (!queue.isEmpty()) {
+      long top = queue.poll();
+      int u = LongMinHeap.value(top);
+      if (u == c2) {
+        break;
+      }
+      int d = LongMinHeap.priority(top);
+      if (d > dist.get(u, Integer.MAX_VALUE)) {
+        continue;
+      }
+      CancellationToken.check(token);
+      for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+        int next = shift(u, word(keys[e]));
+        int newDist = d + weights[e];
+        if (next >= 0 && newDist < dist.get(next, Integer.MAX_VALUE)) {
+          dist.put(next, newDist);
+          prev.put(next, u);
+          queue.add(LongMinHeap.pack(newDist, next));
+        }
+      }
+    }
+    int length = dist.get(c2, Integer.MAX_VALUE);
+    if (length == Integer.MAX_VALUE) {
+      return "No path from " + phrase1 + " to " + phrase2 + "!";
+    }
+    List<String> path = new LinkedList<>();
+    for (int c = c2; ; c = prev.get(c, -1)) {
+      path.add(0, describe(c));
+      if (c == c1) {
+        break;
+      }
+    }
+    return "Shortest path: " + String.join(" -> ", path) + " (Length: " + length + ")";
+  }
+
+  /**
+   * 随机游走：从随机上下文出发，每步在出边中随机选择，出现重复的n-gram时停止.
+   *
+   * @param random 随机数生成器
+   * @return 游走经过的单词序列，图为空时返回空串
+   */
+  public String randomWalk(Random random) {
+    return randomWalk(random, null);
+  }
+
+  /**
+   * 随机游走，每走一步检查一次取消标记.
+   *
+   * @param random 随机数生成器
+   * @param token  取消标记，为null时不检查
+   * @return 游走经过的单词序列，图为空时返回空串
+   */
+  public String randomWalk(Random random, CancellationToken token) {
+    freeze();
+    if (active.length == 0) {
+      return "";
+    }
+    int c = active[random.nextInt(active.length)];
+    StringBuilder walk = new StringBuilder(describe(c));
+    BitSet visited = new BitSet(keys.length);
+    while (c >= 0 && offsets[c + 1] > offsets[c]) {
+      CancellationToken.check(token);
+      int e = offsets[c] + random.nextInt(offsets[c + 1] - offsets[c]);
+      int word = word(keys[e]);
+      walk.append(' ').append(dictionary.word(word));
+      c = shift(c, word);
+      if (visited.get(e)) {
+        break;
+      }
+      visited.set(e);
+    }
+    return walk.toString();
+  }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NgramGraphTest {
+  private NgramGraph trigram;
+
+  @BeforeEach
+  void setUp() {
+    trigram = new NgramGraph(3);
+    for (String word : "to seek out new life and to seek new worlds".split(" ")) {
+      trigram.accept(word);
+    }
+  }
+
+  @Test
+  void testCounts() {
+    assertEquals(8, trigram.ngramCount());
+    assertEquals(7, trigram.contextCount());
+  }
+
+  @Test
+  void testQueryBridgeWords() {
+    assertEquals("The bridge words from to seek to new are: out.",
+        trigram.queryBridgeWords("to seek", "new"));
+    assertEquals("The bridge words from to seek to worlds are: new.",
+        trigram.queryBridgeWords("to seek", "worlds"));
+    assertEquals("No bridge words from seek out to worlds!",
+        trigram.queryBridgeWords("seek out", "worlds"));
+    assertEquals("No to or life in the graph!", trigram.queryBridgeWords("to", "life"));
+    //第二个单词与短语一样折叠大小写
+    assertEquals("The bridge words from To Seek to New are: out.",
+        trigram.queryBridgeWords("To Seek", "New"));
+    assertEquals("No to seek or new worlds in the graph!",
+        trigram.queryBridgeWords("to seek", "new worlds"));
+  }
+
+  @Test
+  void testCalcShortestPath() {
+    assertEquals("Shortest path: to seek -> seek new -> new worlds (Length: 2)",
+        trigram.calcShortestPath("to seek", "new worlds"));
+    assertEquals("No path from new worlds to to seek!",
+        trigram.calcShortestPath("new worlds", "to seek"));
+  }
+
+  @Test
+  void testRandomWalk() {
+    String walk = trigram.randomWalk(new Random(7));
+    assertTrue(walk.split(" ").length >= 2);
+  }
+
+  @Test
+  void testPrimeContinuesContext() {
+    NgramGraph g = new NgramGraph(3);
+    g.accept("a");
+    g.accept("b");
+    g.reset();
+    g.prime("a");
+    g.prime("b");
+    g.accept("c");
+    assertEquals(1, g.ngramCount());
+    assertEquals("Shortest path: a b -> b c (Length: 1)", g.calcShortestPath("a b", "b c"));
+  }
+
+  @Test
+  void testVocabularyBeyondPackedLimit() {
+    //旧实现每个单词占63 / 4 = 15位，4阶时最多32768个单词
+    NgramGraph g = new NgramGraph(4);
+    int n = 40000;
+    for (int i = 0; i < n; i++) {
+      g.accept(letters(i));
+    }
+    assertEquals(n - 3, g.ngramCount());
+    String from = letters(n - 6) + " " + letters(n - 5) + " " + letters(n - 4);
+    String to = letters(n - 3) + " " + letters(n - 2) + " " + letters(n - 1);
+    assertTrue(g.calcShortestPath(from, to).endsWith("(Length: 3)"));
+    assertEquals("The bridge words from " + from + " to " + letters(n - 2) + " are: "
+        + letters(n - 3) + ".", g.queryBridgeWords(from, letters(n - 2)));
+  }
+
+  //把i写成只含小写字母的单词
+  private static String letters(int i) {
+    StringBuilder sb = new StringBuilder();
+    do {
+      sb.append((char) ('a' + i % 26));
+      i /= 26;
+    } while (i > 0);
+    return sb.toString();
+  }
+
+  @Test
+  void testInvalidOrder() {
+    assertThrows(IllegalArgumentException.class, () -> new NgramGraph(5));
+  }
+}
@@ -0,0 +1,762 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 堆外邻接存储.
+ * 以CSR（压缩稀疏行）格式把有向图的偏移、目标结点和边权值保存在直接缓冲区中，
+ * 也可以映射到文件上；遍历时只读取int，不为每条边创建对象.
+ * 结点编号即单词在字典中的编号，作为key出现的单词（起点）按编号升序另存一份，其余为只作为终点出现的单词；
+ * 每个结点的出边按目标编号升序排列，便于二分查找；另有按权值降序的出边下标索引和按权值降序的入边表，
+ * 前k个后继、前驱只需读取前k项.
+ * 可以由堆上的邻接表构建，也可以由Builder按单词编号流式累计的边构建，或把累计的边合并到已有存储上.
+ * 直接内存由ByteBuffer.allocateDirect分配，总量受-XX:MaxDirectMemorySize限制（默认与最大堆相同），
+ * 超过时抛出OutOfMemoryError；图很大时应使用映射文件.
+ */
+public final class OffHeapGraph {
+  //单词与结点编号，编号即加入字典的顺序；字典可以与读入共用，之后加入的单词不属于本存储
+  private final WordDictionary dictionary;
+  private final int nodeCount;
+  private final int edgeCount;
+  private final IntBuffer offsets;
+  private final IntBuffer targets;
+  private final IntBuffer weights;
+  //每个结点的出边下标，按权值降序排列
+  private final IntBuffer byWeight;
+  //每个结点出边权值之和
+  private final IntBuffer totals;
+  //入边表，每个结点的入边按权值降序排列
+  private final IntBuffer inOffsets;
+  private final IntBuffer inSources;
+  private final IntBuffer inWeights;
+  //起点的结点编号，升序
+  private final IntBuffer sources;
+
+  private OffHeapGraph(WordDictionary dictionary, int nodeCount, IntBuffer[] buffers) {
+    this.dictionary = dictionary;
+    this.nodeCount = nodeCount;
+    this.offsets = buffers[0];
+    this.targets = buffers[1];
+    this.weights = buffers[2];
+    this.byWeight = buffers[3];
+    this.totals = buffers[4];
+    this.inOffsets = buffers[5];
+    this.inSources = buffers[6];
+    this.inWeights = buffers[7];
+    this.sources = buffers[8];
+    this.edgeCount = offsets.get(nodeCount);
+  }
+
+  /**
+   * 逐条给出边的来源，可以重复遍历，边的顺序任意.
+   */
+  private interface EdgeSource {
+    void forEach(EdgeSink sink);
+  }
+
+  private interface EdgeSink {
+    void edge(int from, int to, int weight);
+  }
+
+  /**
+   * 流式构建器：按单词编号累计边权值，不需要堆上的邻接表.
+   * 边存放在以(起点编号 &lt;&lt; 32 | 终点编号)为键的基本类型哈希表中，每条边占24到48字节；
+   * 以已有存储为基础时表中只有新累计的边，构建时与已有存储的边合并.
+   */
+  static final class Builder {
+    private final WordDictionary dictionary;
+    private final OffHeapGraph base;
+    private final LongIntHashMap edges;
+    //作为起点出现过的单词，没有出边也保留为起点
+    private final BitSet sources = new BitSet();
+
+    Builder(WordDictionary dictionary, int expectedEdges) {
+      this(dictionary, null, expectedEdges);
+    }
+
+    private Builder(WordDictionary dictionary, OffHeapGraph base, int expectedEdges) {
+      this.dictionary = dictionary;
+      this.base = base;
+      this.edges = new LongIntHashMap(expectedEdges);
+      if (base != null) {
+        for (int i = 0; i < base.sourceCount(); i++) {
+          sources.set(base.sourceNode(i));
+        }
+      }
+    }
+
+    void addSource(int from) {
+      sources.set(from);
+    }
+
+    /**
+     * 边权值加上weight，边不存在时加入.
+     *
+     * @param from   起点编号
+     * @param to     终点编号
+     * @param weight 权值增量
+     */
+    void add(int from, int to, int weight) {
+      sources.set(from);
+      edges.addTo(((long) from << 32) | to, weight);
+    }
+
+    /**
+     * 构建堆外存储，结点编号沿用字典中的编号.
+     *
+     * @param mappedFile 映射文件路径，为null时使用直接内存
+     * @return 堆外存储
+     * @throws IOException 映射文件失败
+     */
+    OffHeapGraph build(String mappedFile) throws IOException {
+      long edgeCount = base == null ? 0 : base.edgeCount();
+      for (int i = 0; i < edges.capacity(); i++) {
+        long key = edges.keyAt(i);
+        if (key >= 0 && !inBase((int) (key >>> 32), (int) key)) {
+          edgeCount++;
+        }
+      }
+      return write(dictionary, sources, edgeCount, mappedFile, sink -> {
+        //已有存储的边加上新累计的权值，再补上已有存储中没有的边
+        if (base != null) {
+          for (int i = 0; i < base.sourceCount(); i++) {
+            int node = base.sourceNode(i);
+            for (int e = base.firstEdge(node); e < base.endEdge(node); e++) {
+              int to = base.target(e);
+              sink.edge(node, to, base.weight(e) + edges.get(((long) node << 32) | to, 0));
+            }
+          }
+        }
+        for (int i = 0; i < edges.capacity(); i++) {
+          long key = edges.keyAt(i);
+          if (key >= 0 && !inBase((int) (key >>> 32), (int) key)) {
+            sink.edge((int) (key >>> 32), (int) key, edges.valueAt(i));
+          }
+        }
+      });
+    }
+
+    private boolean inBase(int from, int to) {
+      return base != null && from < base.nodeCount() && to < base.nodeCount()
+          && base.findEdge(from, to) >= 0;
+    }
+  }
+
+  /**
+   * 以本存储为基础创建流式构建器，用于追加读入或转存.
+   * 本存储的边不复制到堆上，构建时直接与新累计的边合并，因此构建完成前本存储必须保持可读；
+   * 构建器在本存储的字典中加入新单词，本存储不受影响.
+   *
+   * @return 构建器
+   */
+  Builder toBuilder() {
+    return new Builder(dictionary, this, 16);
+  }
+
+  /**
+   * 由堆上的邻接表构建堆外存储.
+   *
+   * @param graph      邻接表
+   * @param mappedFile 映射文件路径，为null时使用直接内存
+   * @return 堆外存储
+   * @throws IOException 映射文件失败
+   */
+  public static OffHeapGraph build(Map<String, Map<String, Integer>> graph, String mappedFile)
+      throws IOException {
+    return build(graph, new WordDictionary(graph.size()), mappedFile);
+  }
+
+  /**
+   * 由堆上的邻接表构建堆外存储，单词编号取自（并加入）给定的字典.
+   *
+   * @param graph      邻接表
+   * @param dictionary 单词字典
+   * @param mappedFile 映射文件路径，为null时使用直接内存
+   * @return 堆外存储
+   * @throws IOException 映射文件失败
+   */
+  static OffHeapGraph build(Map<String, Map<String, Integer>> graph, WordDictionary dictionary,
+                            String mappedFile) throws IOException {
+    BitSet sources = new BitSet();
+    long edges = 0;
+    for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
+      sources.set(dictionary.intern(entry.getKey()));
+      for (String to : entry.getValue().keySet()) {
+        dictionary.intern(to);
+      }
+      edges += entry.getValue().size();
+    }
+    return write(dictionary, sources, edges, mappedFile, sink -> {
+      for (Map.Entry<String, Map<String, Integer>> entry : graph.entrySet()) {
+        int from = dictionary.find(entry.getKey());
+        for (Map.Entry<String, Integer> toEntry : entry.getValue().entrySet()) {
+          sink.edge(from, dictionary.find(toEntry.getKey()), toEntry.getValue());
+        }
+      }
+    });
+  }
+
+  //分配缓冲区并写入CSR：先按起点计数，再填入出边，最后逐个结点排序并生成入边表
+  private static OffHeapGraph write(WordDictionary dictionary, BitSet sourceSet, long edges,
+                                    String mappedFile, EdgeSource source) throws IOException {
+    if (edges > Integer.MAX_VALUE / Integer.BYTES) {
+      throw new IOException("Too many edges for off-heap storage: " + edges);
+    }
+    int nodeCount = dictionary.size();
+    int edgeCount = (int) edges;
+
+    //依次为offsets、targets、weights、byWeight、totals、inOffsets、inSources、inWeights、sources
+    long[] sizes = {nodeCount + 1L, edgeCount, edgeCount, edgeCount, nodeCount,
+        nodeCount + 1L, edgeCount, edgeCount, sourceSet.cardinality()};
+    IntBuffer[] buffers = new IntBuffer[sizes.length];
+    Path target = null;
+    Path temp = null;
+    if (mappedFile == null) {
+      for (int i = 0; i < sizes.length; i++) {
+        buffers[i] = direct(sizes[i] * Integer.BYTES);
+      }
+    } else {
+      //先写到同目录的临时文件，写完再替换目标文件：目标文件可能正映射着构建所依据的存储
+      target = Paths.get(mappedFile).toAbsolutePath();
+      temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+      try (FileChannel channel = FileChannel.open(temp,
+          StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        long position = 0;
+        for (int i = 0; i < sizes.length; i++) {
+          buffers[i] = mapped(channel, position, sizes[i] * Integer.BYTES);
+          position += sizes[i] * Integer.BYTES;
+        }
+      }
+    }
+    IntBuffer offsets = buffers[0];
+    IntBuffer targets = buffers[1];
+    IntBuffer weights = buffers[2];
+    IntBuffer byWeight = buffers[3];
+    IntBuffer totals = buffers[4];
+    IntBuffer inOffsets = buffers[5];
+    IntBuffer inSources = buffers[6];
+    IntBuffer inWeights = buffers[7];
+    IntBuffer sources = buffers[8];
+    int sourceIndex = 0;
+    for (int id = sourceSet.nextSetBit(0); id >= 0; id = sourceSet.nextSetBit(id + 1)) {
+      sources.put(sourceIndex++, id);
+    }
+
+    //按起点计数并填入出边，此时每个结点的出边尚未排序
+    int[] cursor = new int[nodeCount + 1];
+    source.forEach((from, to, weight) -> cursor[from + 1]++);
+    for (int node = 0; node < nodeCount; node++) {
+      cursor[node + 1] += cursor[node];
+      offsets.put(node, cursor[node]);
+    }
+    offsets.put(nodeCount, cursor[nodeCount]);
+    source.forEach((from, to, weight) -> {
+      int edge = cursor[from]++;
+      targets.put(edge, to);
+      weights.put(edge, weight);
+    });
+
+    //逐个结点把出边按目标编号排序
+    long[] scratch = new long[16];
+    int[] inDegree = new int[nodeCount + 1];
+    for (int node = 0; node < nodeCount; node++) {
+      int first = offsets.get(node);
+      int degree = offsets.get(node + 1) - first;
+      if (scratch.length < degree) {
+        scratch = new long[degree];
+      }
+      for (int i = 0; i < degree; i++) {
+        scratch[i] = ((long) targets.get(first + i) << 32)
+            | (weights.get(first + i) & 0xffffffffL);
+      }
+      Arrays.sort(scratch, 0, degree);
+      int total = 0;
+      for (int i = 0; i < degree; i++) {
+        int to = (int) (scratch[i] >>> 32);
+        int weight = (int) scratch[i];
+        targets.put(first + i, to);
+        weights.put(first + i, weight);
+        inDegree[to + 1]++;
+        total += weight;
+      }
+      totals.put(node, total);
+      //按权值降序、同权值按目标编号升序生成出边下标索引
+      for (int i = 0; i < degree; i++) {
+        scratch[i] = descending(weights.get(first + i), i);
+      }
+      Arrays.sort(scratch, 0, degree);
+      for (int i = 0; i < degree; i++) {
+        byWeight.put(first + i, first + (int) scratch[i]);
+      }
+    }
+
+    //由出边生成入边表
+    for (int node = 0; node < nodeCount; node++) {
+      inDegree[node + 1] += inDegree[node];
+      inOffsets.put(node, inDegree[node]);
+    }
+    inOffsets.put(nodeCount, inDegree[nodeCount]);
+    for (int from = 0; from < nodeCount; from++) {
+      for (int e = offsets.get(from); e < offsets.get(from + 1); e++) {
+        int slot = inDegree[targets.get(e)]++;
+        inSources.put(slot, from);
+        inWeights.put(slot, weights.get(e));
+      }
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      int first = inOffsets.get(node);
+      int degree = inOffsets.get(node + 1) - first;
+      if (scratch.length < degree) {
+        scratch = new long[degree];
+      }
+      for (int i = 0; i < degree; i++) {
+        scratch[i] = descending(inWeights.get(first + i), inSources.get(first + i));
+      }
+      Arrays.sort(scratch, 0, degree);
+      for (int i = 0; i < degree; i++) {
+        inSources.put(first + i, (int) scratch[i]);
+        inWeights.put(first + i, Integer.MAX_VALUE - (int) (scratch[i] >>> 32));
+      }
+    }
+    if (temp != null) {
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      } catch (IOException e) {
+        Files.deleteIfExists(temp);
+        throw e;
+      }
+    }
+    return new OffHeapGraph(dictionary, nodeCount, buffers);
+  }
+
+  //排序键：权值大的在前，同权值时value小的在前
+  private static long descending(int weight, int value) {
+    return ((long) (Integer.MAX_VALUE - weight) << 32) | (value & 0xffffffffL);
+  }
+
+  private static IntBuffer direct(long bytes) {
+    return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  private static IntBuffer mapped(FileChannel channel, long position, long bytes)
+      throws IOException {
+    return channel.map(FileChannel.MapMode.READ_WRITE, position, bytes)
+        .order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  public int sourceCount() {
+    return sources.capacity();
+  }
+
+  /**
+   * 第index个起点（按编号升序）的结点编号.
+   *
+   * @param index 下标，[0, sourceCount)
+   * @return 结点编号
+   */
+  public int sourceNode(int index) {
+    return sources.get(index);
+  }
+
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * 全部缓冲区的字节数，位于直接内存或映射文件中.
+   *
+   * @return 字节数
+   */
+  public long bufferBytes() {
+    long ints = 0;
+    for (IntBuffer buffer : new IntBuffer[] {offsets, targets, weights, byWeight, totals,
+        inOffsets, inSources, inWeights, sources}) {
+      ints += buffer.capacity();
+    }
+    return ints * Integer.BYTES;
+  }
+
+  /**
+   * 单词字典在堆上的估计字节数，不含单词String本身.
+   *
+   * @return 字节数
+   */
+  public long dictionaryBytes() {
+    return dictionary.estimatedBytes();
+  }
+
+  /**
+   * 查询单词编号，不创建对象.
+   *
+   * @param word 单词
+   * @return 编号，不存在返回-1
+   */
+  public int id(CharSequence word) {
+    int id = dictionary.find(word);
+    return id < nodeCount ? id : -1;
+  }
+
+  public String word(int id) {
+    return dictionary.word(id);
+  }
+
+  /**
+   * 判断结点是否在原图中作为key出现.
+   *
+   * @param id 结点编号
+   * @return 是否为key
+   */
+  public boolean isSource(int id) {
+    int low = 0;
+    int high = sources.capacity() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int node = sources.get(mid);
+      if (node < id) {
+        low = mid + 1;
+      } else if (node > id) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public int firstEdge(int node) {
+    return offsets.get(node);
+  }
+
+  public int endEdge(int node) {
+    return offsets.get(node + 1);
+  }
+
+  public int target(int edge) {
+    return targets.get(edge);
+  }
+
+  public int weight(int edge) {
+    return weights.get(edge);
+  }
+
+  /**
+   * 按权值降序取node的第rank条出边.
+   *
+   * @param node 结点编号
+   * @param rank 名次，从0开始
+   * @return 边的下标
+   */
+  public int edgeByWeight(int node, int rank) {
+    return byWeight.get(firstEdge(node) + rank);
+  }
+
+  /**
+   * 出边权值之和.
+   *
+   * @param node 结点编号
+   * @return 权值之和
+   */
+  public int outWeight(int node) {
+    return totals.get(node);
+  }
+
+  /**
+   * 边的转移概率，即该边权值占起点出边权值之和的比例.
+   *
+   * @param from 起点编号
+   * @param edge 边的下标
+   * @return 概率
+   */
+  public double probability(int from, int edge) {
+    return (double) weights.get(edge) / totals.get(from);
+  }
+
+  public int firstInEdge(int node) {
+    return inOffsets.get(node);
+  }
+
+  public int endInEdge(int node) {
+    return inOffsets.get(node + 1);
+  }
+
+  public int inDegree(int node) {
+    return endInEdge(node) - firstInEdge(node);
+  }
+
+  /**
+   * 入边的起点，入边按权值降序排列.
+   *
+   * @param inEdge 入边下标
+   * @return 起点编号
+   */
+  public int source(int inEdge) {
+    return inSources.get(inEdge);
+  }
+
+  public int inWeight(int inEdge) {
+    return inWeights.get(inEdge);
+  }
+
+  /**
+   * 权值最大的入边的权值.
+   *
+   * @param node 结点编号
+   * @return 最大入边权值，没有入边时返回0
+   */
+  public int maxInWeight(int node) {
+    return inDegree(node) == 0 ? 0 : inWeights.get(firstInEdge(node));
+  }
+
+  /**
+   * 权值最大的k个后继.
+   *
+   * @param node 结点编号
+   * @param k    个数
+   * @return 后继单词，按权值降序
+   */
+  public List<String> topSuccessors(int node, int k) {
+    List<String> result = new ArrayList<>();
+    int count = Math.min(k, endEdge(node) - firstEdge(node));
+    for (int rank = 0; rank < count; rank++) {
+      result.add(dictionary.word(targets.get(edgeByWeight(node, rank))));
+    }
+    return result;
+  }
+
+  /**
+   * 权值最大的k个前驱.
+   *
+   * @param node 结点编号
+   * @param k    个数
+   * @return 前驱单词，按权值降序
+   */
+  public List<String> topPredecessors(int node, int k) {
+    List<String> result = new ArrayList<>();
+    int count = Math.min(k, inDegree(node));
+    for (int i = 0; i < count; i++) {
+      result.add(dictionary.word(inSources.get(firstInEdge(node) + i)));
+    }
+    return result;
+  }
+
+  /**
+   * 按w(id1, b) * w(b, id2)降序取前k个桥接词.
+   * id1的出边按权值降序遍历，一旦w(id1, b)与id2的最大入边权值之积不超过当前第k名，即提前结束.
+   *
+   * @param id1 起点编号
+   * @param id2 终点编号
+   * @param k   个数
+   * @return 桥接词，按得分降序
+   */
+  public List<String> rankBridgeWords(int id1, int id2, int k) {
+    if (k <= 0) {
+      return new ArrayList<>();
+    }
+    int[] best = new int[k];
+    long[] scores = new long[k];
+    int found = 0;
+    int maxIn = maxInWeight(id2);
+    for (int rank = 0; rank < endEdge(id1) - firstEdge(id1); rank++) {
+      int e = edgeByWeight(id1, rank);
+      //剩余出边的得分上界
+      if (found == k && (long) weights.get(e) * maxIn <= scores[k - 1]) {
+        break;
+      }
+      int mid = targets.get(e);
+      int second = findEdge(mid, id2);
+      if (second < 0) {
+        continue;
+      }
+      long score = (long) weights.get(e) * weights.get(second);
+      //插入到有序的前k名中
+      int i;
+      if (found < k) {
+        i = found++;
+      } else if (score > scores[k - 1]) {
+        i = k - 1;
+      } else {
+        continue;
+      }
+      while (i > 0 && scores[i - 1] < score) {
+        scores[i] = scores[i - 1];
+        best[i] = best[i - 1];
+        i--;
+      }
+      scores[i] = score;
+      best[i] = mid;
+    }
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < found; i++) {
+      result.add(dictionary.word(best[i]));
+    }
+    return result;
+  }
+
+  /**
+   * 二分查找from到to的边.
+   *
+   * @param from 起点编号
+   * @param to   终点编号
+   * @return 边的下标，不存在返回-1
+   */
+  public int findEdge(int from, int to) {
+    int lo = firstEdge(from);
+    int hi = endEdge(from) - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int t = targets.get(mid);
+      if (t < to) {
+        lo = mid + 1;
+      } else if (t > to) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Dijkstra单源最短路径，取出target后提前结束.
+   *
+   * @param source 起点编号
+   * @param target 终点编号
+   * @param dist   长度为nodeCount的距离数组，由本方法初始化
+   * @param prev   长度为nodeCount的前驱数组，由本方法初始化
+   * @param reach  可达性索引，不能到达target的结点不入队；为null时不剪枝
+   * @param token  取消标记，每取出一个结点检查一次；为null时不检查
+   * @return 到target的距离，不可达返回Integer.MAX_VALUE
+   */
+  public int shortestPath(int source, int target, int[] dist, int[] prev,
+                          ReachabilityIndex reach, CancellationToken token) {
+    dijkstra(source, target, dist, prev, null, null, reach, token);
+    return dist[target];
+  }
+
+  /**
+   * Dijkstra单源最短路径计数，用于Brandes介数中心性：求起点到各结点的最短距离和最短路径条数.
+   *
+   * @param source 起点编号
+   * @param dist   长度为nodeCount的距离数组，由本方法初始化，不可达为Integer.MAX_VALUE
+   * @param sigma  长度为nodeCount的最短路径条数数组，由本方法初始化
+   * @param order  长度为nodeCount的数组，按距离升序存放依次取出的结点
+   * @return 取出的结点个数
+   */
+  public int countShortestPaths(int source, int[] dist, double[] sigma, int[] order) {
+    return dijkstra(source, -1, dist, null, sigma, order, null, null);
+  }
+
+  //Dijkstra主循环，prev、sigma、order、reach、token为null时不记录或不检查；返回取出的结点个数
+  private int dijkstra(int source, int target, int[] dist, int[] prev, double[] sigma,
+                       int[] order, ReachabilityIndex reach, CancellationToken token) {
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    if (prev != null) {
+      Arrays.fill(prev, -1);
+    }
+    if (sigma != null) {
+      Arrays.fill(sigma, 0);
+      sigma[source] = 1;
+    }
+    int settled = 0;
+    LongMinHeap queue = new LongMinHeap(64);
+    dist[source] = 0;
+    queue.add(LongMinHeap.pack(0, source));
+    while (!queue.isEmpty()) {
+      long top = queue.poll();
+      int current = LongMinHeap.value(top);
+      //跳过过期的队列项；结点只在距离变小时入队，因此每个结点只取出一次
+      if (LongMinHeap.priority(top) > dist[current]) {
+        continue;
+      }
+      if (current == target) {
+        break;
+      }
+      CancellationToken.check(token);
+      if (order != null) {
+        order[settled] = current;
+      }
+      settled++;
+      for (int e = firstEdge(current); e < endEdge(current); e++) {
+        int neighbor = targets.get(e);
+        if (reach != null && !reach.canReach(neighbor, target)) {
+          continue;
+        }
+        int newDist = dist[current] + weights.get(e);
+        if (newDist < dist[neighbor]) {
+          dist[neighbor] = newDist;
+          if (prev != null) {
+            prev[neighbor] = current;
+          }
+          if (sigma != null) {
+            sigma[neighbor] = sigma[current];
+          }
+          queue.add(LongMinHeap.pack(newDist, neighbor));
+        } else if (newDist == dist[neighbor] && sigma != null) {
+          sigma[neighbor] += sigma[current];
+        }
+      }
+    }
+    return settled;
+  }
+
+  /**
+   * 沿入边反向执行Dijkstra，求各结点到target的最短距离，超过limit的结点不再扩展.
+   *
+   * @param target 终点编号
+   * @param limit  距离上限
+   * @param dist   长度为nodeCount的距离数组，由本方法初始化，不可达为Integer.MAX_VALUE
+   */
+  public void reverseShortestPaths(int target, int limit, int[] dist) {
+    Arrays.fill(dist, Integer.MAX_VALUE);
+    LongMinHeap queue = new LongMinHeap(64);
+    dist[target] = 0;
+    queue.add(LongMinHeap.pack(0, target));
+    while (!queue.isEmpty()) {
+      long top = queue.poll();
+      int current = LongMinHeap.value(top);
+      if (LongMinHeap.priority(top) > dist[current]) {
+        continue;
+      }
+      for (int e = firstInEdge(current); e < endInEdge(current); e++) {
+        int from = inSources.get(e);
+        long newDist = (long) dist[current] + inWeights.get(e);
+        if (newDist <= limit && newDist < dist[from]) {
+          dist[from] = (int) newDist;
+          queue.add(LongMinHeap.pack((int) newDist, from));
+        }
+      }
+    }
+  }
+
+  /**
+   * 根据前驱数组还原路径.
+   *
+   * @param prev   前驱数组
+   * @param target 终点编号
+   * @return 从起点到终点的单词序列
+   */
+  public List<String> pathTo(int[] prev, int target) {
+    List<String> path = new LinkedList<>();
+    for (int at = target; at != -1; at = prev[at]) {
+      path.add(0, dictionary.word(at));
+    }
+    return path;
+  }
+}
@@ -0,0 +1,159 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OffHeapGraphTest {
+  private GraphProcessor graphProcessor;
+
+  @BeforeEach
+  void setUp() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("the", Map.of("quick", 1, "lazy", 2));
+    graphProcessor.graph.put("quick", Map.of("dog", 3));
+    graphProcessor.graph.put("lazy", Map.of("dog", 1));
+    graphProcessor.graph.put("dog", new HashMap<>());
+  }
+
+  @Test
+  void testBuild_EdgesSortedAndFound() throws IOException {
+    OffHeapGraph store = OffHeapGraph.build(graphProcessor.graph, null);
+    assertEquals(4, store.nodeCount());
+    assertEquals(4, store.sourceCount());
+    assertEquals(4, store.edgeCount());
+    int the = store.id("the");
+    int edge = store.findEdge(the, store.id("lazy"));
+    assertEquals(2, store.weight(edge));
+    assertEquals(-1, store.findEdge(the, store.id("dog")));
+    assertEquals(-1, store.id("cat"));
+  }
+
+  @Test
+  void testBuild_TargetOnlyWordsAreNotSources() throws IOException {
+    graphProcessor.graph.put("dog", Map.of("barks", 1));
+    OffHeapGraph store = OffHeapGraph.build(graphProcessor.graph, null);
+    assertEquals(5, store.nodeCount());
+    assertTrue(!store.isSource(store.id("barks")));
+  }
+
+  @Test
+  void testQueryBridgeWords_OffHeap() {
+    graphProcessor.useOffHeapStore(null);
+    assertTrue(graphProcessor.graph.isEmpty());
+    String result = graphProcessor.queryBridgeWords("the", "dog");
+    assertTrue(result.equals("The bridge words from the to dog are: quick, lazy.")
+        || result.equals("The bridge words from the to dog are: lazy, quick."));
+    assertEquals("No cat or dog in the graph!", graphProcessor.queryBridgeWords("cat", "dog"));
+  }
+
+  @Test
+  void testCalcShortestPath_MappedFile() throws IOException {
+    File file = File.createTempFile("graph", ".bin");
+    file.deleteOnExit();
+    graphProcessor.useOffHeapStore(file.getAbsolutePath());
+    assertEquals("Shortest path: the -> lazy -> dog (Length: 3)",
+        graphProcessor.calcShortestPath("the", "dog"));
+    assertEquals("No path from dog to the!", graphProcessor.calcShortestPath("dog", "the"));
+  }
+
+  @Test
+  void testRandomWalk_OffHeap() {
+    graphProcessor.useOffHeapStore(null);
+    String result = graphProcessor.randomWalk();
+    assertTrue(result.equals("the quick dog") || result.equals("the lazy dog")
+        || result.equals("quick dog") || result.equals("lazy dog") || result.equals("dog"));
+  }
+
+  @Test
+  void testReadFileAppendsToStoreWithoutHeapMap() throws IOException {
+    File file = new File("off_heap_append_test.txt");
+    Files.write(file.toPath(), "the quick dog barks the quick".getBytes(StandardCharsets.UTF_8));
+    try {
+      graphProcessor.useOffHeapStore(null);
+      graphProcessor.readFileAndGenerateGraph(file.getName());
+      assertTrue(graphProcessor.graph.isEmpty());
+      //已有边的权值累加，新单词加入，没有出边的起点仍是起点
+      assertEquals("Shortest path: the -> lazy -> dog -> barks (Length: 4)",
+          graphProcessor.calcShortestPath("the", "barks"));
+      assertEquals(Set.of("quick", "lazy"), graphProcessor.predecessors("dog"));
+      assertEquals(List.of("quick", "lazy"), graphProcessor.topSuccessors("the", 2));
+      assertEquals("Shortest path: the -> quick (Length: 3)",
+          graphProcessor.calcShortestPath("the", "quick"));
+      assertEquals("The bridge words from lazy to barks are: dog.",
+          graphProcessor.queryBridgeWords("lazy", "barks"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  void testReadFileAppendsToMappedStore() throws IOException {
+    File store = File.createTempFile("graph", ".bin");
+    store.deleteOnExit();
+    File file = new File("off_heap_mapped_append_test.txt");
+    Files.write(file.toPath(), "the quick dog barks the".getBytes(StandardCharsets.UTF_8));
+    try {
+      graphProcessor.useOffHeapStore(store.getAbsolutePath());
+      //合并时读取的正是映射着同一文件的旧存储
+      graphProcessor.readFileAndGenerateGraph(file.getName());
+      graphProcessor.readFileAndGenerateGraph(file.getName());
+      assertEquals("Shortest path: the -> lazy -> dog -> barks (Length: 5)",
+          graphProcessor.calcShortestPath("the", "barks"));
+      assertEquals(List.of("quick", "lazy"), graphProcessor.topSuccessors("the", 2));
+      graphProcessor.useOffHeapStore(store.getAbsolutePath());
+      assertEquals(Set.of("quick", "lazy"), graphProcessor.predecessors("dog"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  void testBuilder_KeepsDictionaryIds() throws IOException {
+    WordDictionary dictionary = new WordDictionary();
+    OffHeapGraph.Builder builder = new OffHeapGraph.Builder(dictionary, 4);
+    int dog = dictionary.intern("dog");
+    int the = dictionary.intern("the");
+    int cat = dictionary.intern("cat");
+    builder.add(the, dog, 2);
+    builder.add(the, dog, 1);
+    builder.addSource(cat);
+    OffHeapGraph store = builder.build(null);
+    assertEquals(3, store.nodeCount());
+    assertEquals(2, store.sourceCount());
+    assertEquals(dog, store.id("dog"));
+    assertTrue(store.isSource(cat));
+    assertTrue(!store.isSource(dog));
+    assertEquals(3, store.weight(store.findEdge(the, dog)));
+    //之后加入字典的单词不属于已构建的存储
+    dictionary.intern("fox");
+    assertEquals(-1, store.id("fox"));
+    assertEquals(3, store.nodeCount());
+  }
+
+  @Test
+  void testNgramSharesDictionary() throws IOException {
+    graphProcessor.setOrder(3);
+    graphProcessor.useOffHeapStore(null);
+    File file = new File("off_heap_ngram_test.txt");
+    Files.write(file.toPath(), "the quick dog".getBytes(StandardCharsets.UTF_8));
+    try {
+      graphProcessor.readFileAndGenerateGraph(file.getName());
+      assertEquals("Shortest path: the quick -> quick dog (Length: 1)",
+          graphProcessor.calcShortestPath("the quick", "quick dog"));
+      GraphStatistics stats = graphProcessor.statistics();
+      assertTrue(stats.heapBytes().containsKey("dictionary"));
+      assertTrue(!stats.heapBytes().containsKey("store dictionary"));
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * 强连通分量与可达性索引.
+ * 用非递归的Tarjan算法求强连通分量，分量编号按完成顺序分配，即凝聚图的逆拓扑序：
+ * 凝聚图中的边总是从编号大的分量指向编号小的分量，因此comp(u) &lt; comp(v)时u一定不可达v.
+ * 分量数不超过CLOSURE_LIMIT时，再按逆拓扑序为每个分量计算传递闭包位图，可精确判断可达性；
+ * 超过时改用区间标签（GRAIL）：在凝聚图上以两种后继顺序各做一次深度优先遍历，分量c的标签为
+ * [low(c), post(c)]，post为后序编号，low为c能到达的分量中最小的后序编号.
+ * u能到达v时v的标签一定包含于u的标签，因此任一标签不包含时一定不可达；
+ * 每个分量只占4个int，互不相交的子图（如多条独立的链）可以被完全区分.
+ */
+public final class ReachabilityIndex {
+  //计算传递闭包的分量数上限，位图最多占用CLOSURE_LIMIT * CLOSURE_LIMIT / 8字节
+  static final int CLOSURE_LIMIT = 8192;
+
+  private final int[] component;
+  private final int componentCount;
+  //传递闭包，第c个分量的位图为closure[c * words, (c + 1) * words)，分量过多时为null
+  private final long[] closure;
+  private final int words;
+  //两组区间标签，有传递闭包时为null
+  private final int[] low1;
+  private final int[] post1;
+  private final int[] low2;
+  private final int[] post2;
+
+  private ReachabilityIndex(int[] component, int componentCount, long[] closure, int words,
+                            int[][] labels) {
+    this.component = component;
+    this.componentCount = componentCount;
+    this.closure = closure;
+    this.words = words;
+    this.low1 = labels == null ? null : labels[0];
+    this.post1 = labels == null ? null : labels[1];
+    this.low2 = labels == null ? null : labels[2];
+    this.post2 = labels == null ? null : labels[3];
+  }
+
+  /**
+   * 估计占用的堆内存字节数.
+   *
+   * @return 字节数
+   */
+  public long estimatedBytes() {
+    return GraphStatistics.array(component.length, Integer.BYTES)
+        + (closure == null ? 0 : GraphStatistics.array(closure.length, Long.BYTES))
+        + (low1 == null ? 0 : 4 * GraphStatistics.array(componentCount, Integer.BYTES));
+  }
+
+  /**
+   * 为图构建可达性索引.
+   *
+   * @param g 图
+   * @return 可达性索引
+   */
+  public static ReachabilityIndex build(OffHeapGraph g) {
+    int n = g.nodeCount();
+    int[] component = new int[n];
+    int[] index = new int[n];
+    int[] low = new int[n];
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n];
+    //用显式栈模拟递归：当前结点和下一条待访问的出边
+    int[] callNode = new int[n];
+    int[] callEdge = new int[n];
+    Arrays.fill(index, -1);
+    int sp = 0;
+    int counter = 0;
+    int componentCount = 0;
+    for (int root = 0; root < n; root++) {
+      if (index[root] != -1) {
+        continue;
+      }
+      index[root] = counter;
+      low[root] = counter++;
+      stack[sp++] = root;
+      onStack[root] = true;
+      callNode[0] = root;
+      callEdge[0] = g.firstEdge(root);
+      int depth = 1;
+      while (depth > 0) {
+        int v = callNode[depth - 1];
+        int e = callEdge[depth - 1];
+        if (e < g.endEdge(v)) {
+          callEdge[depth - 1]++;
+          int w = g.target(e);
+          if (index[w] == -1) {
+            index[w] = counter;
+            low[w] = counter++;
+            stack[sp++] = w;
+            onStack[w] = true;
+            callNode[depth] = w;
+            callEdge[depth] = g.firstEdge(w);
+            depth++;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+          continue;
+        }
+        //v的出边访问完毕，回溯
+        depth--;
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--sp];
+            onStack[w] = false;
+            component[w] = componentCount;
+          } while (w != v);
+          componentCount++;
+        }
+        if (depth > 0) {
+          int u = callNode[depth - 1];
+          low[u] = Math.min(low[u], low[v]);
+        }
+      }
+    }
+    if (componentCount > CLOSURE_LIMIT) {
+      return new ReachabilityIndex(component, componentCount, null, 0,
+          intervalLabels(g, component, componentCount));
+    }
+    return new ReachabilityIndex(component, componentCount,
+        transitiveClosure(g, component, componentCount), (componentCount + 63) >>> 6, null);
+  }
+
+  //构建凝聚图，再按正序和逆序访问后继各遍历一次
+  private static int[][] intervalLabels(OffHeapGraph g, int[] component, int count) {
+    //凝聚图的出边，分量c的后继为targets[start[c], start[c + 1])，可能有重复
+    int[] start = new int[count + 1];
+    for (int node = 0; node < component.length; node++) {
+      for (int e = g.firstEdge(node); e < g.endEdge(node); e++) {
+        if (component[g.target(e)] != component[node]) {
+          start[component[node] + 1]++;
+        }
+      }
+    }
+    for (int c = 0; c < count; c++) {
+      start[c + 1] += start[c];
+    }
+    int[] targets = new int[start[count]];
+    int[] fill = Arrays.copyOf(start, count);
+    for (int node = 0; node < component.length; node++) {
+      for (int e = g.firstEdge(node); e < g.endEdge(node); e++) {
+        int d = component[g.target(e)];
+        if (d != component[node]) {
+          targets[fill[component[node]]++] = d;
+        }
+      }
+    }
+    int[] low1 = new int[count];
+    int[] post1 = new int[count];
+    int[] low2 = new int[count];
+    int[] post2 = new int[count];
+    label(start, targets, false, low1, post1);
+    label(start, targets, true, low2, post2);
+    return new int[][] {low1, post1, low2, post2};
+  }
+
+  //非递归深度优先遍历凝聚图，计算后序编号和能到达的最小后序编号；
+  //按分量编号降序（拓扑序）选取起点，使每次遍历从无入边的分量开始
+  private static void label(int[] start, int[] targets, boolean reversed, int[] low, int[] post) {
+    int count = post.length;
+    boolean[] visited = new boolean[count];
+    int[] callNode = new int[count];
+    int[] callEdge = new int[count];
+    Arrays.fill(low, Integer.MAX_VALUE);
+    int counter = 0;
+    for (int i = 0; i < count; i++) {
+      int root = count - 1 - i;
+      if (visited[root]) {
+        continue;
+      }
+      visited[root] = true;
+      callNode[0] = root;
+      callEdge[0] = 0;
+      int depth = 1;
+      while (depth > 0) {
+        int c = callNode[depth - 1];
+        int k = callEdge[depth - 1];
+        if (k < start[c + 1] - start[c]) {
+          callEdge[depth - 1]++;
+          int d = targets[reversed ? start[c + 1] - 1 - k : start[c] + k];
+          if (!visited[d]) {
+            visited[d] = true;
+            callNode[depth] = d;
+            callEdge[depth] = 0;
+            depth++;
+          } else {
+            //凝聚图无环，已访问的后继一定已完成
+            low[c] = Math.min(low[c], low[d]);
+          }
+          continue;
+        }
+        depth--;
+        post[c] = counter++;
+        low[c] = Math.min(low[c], post[c]);
+        if (depth > 0) {
+          int u = callNode[depth - 1];
+          low[u] = Math.min(low[u], low[c]);
+        }
+      }
+    }
+  }
+
+  //按逆拓扑序（分量编号升序）合并后继分量的位图
+  private static long[] transitiveClosure(OffHeapGraph g, int[] component, int count) {
+    int words = (count + 63) >>> 6;
+    long[] closure = new long[count * words];
+    //按分量对结点做计数排序
+    int[] start = new int[count + 1];
+    for (int c : component) {
+      start[c + 1]++;
+    }
+    for (int c = 0; c < count; c++) {
+      start[c + 1] += start[c];
+    }
+    int[] members = new int[component.length];
+    int[] fill = Arrays.copyOf(start, count);
+    for (int node = 0; node < component.length; node++) {
+      members[fill[component[node]]++] = node;
+    }
+    for (int c = 0; c < count; c++) {
+      int base = c * words;
+      closure[base + (c >>> 6)] |= 1L << c;
+      for (int i = start[c]; i < start[c + 1]; i++) {
+        int node = members[i];
+        for (int e = g.firstEdge(node); e < g.endEdge(node); e++) {
+          int d = component[g.target(e)];
+          if (d != c && (closure[base + (d >>> 6)] & (1L << d)) == 0) {
+            int other = d * words;
+            for (int w = 0; w < words; w++) {
+              closure[base + w] |= closure[other + w];
+            }
+          }
+        }
+      }
+    }
+    return closure;
+  }
+
+  public int componentCount() {
+    return componentCount;
+  }
+
+  public int component(int node) {
+    return component[node];
+  }
+
+  /**
+   * 判断from是否可能到达to.
+   * 返回false时一定不可达；分量过多、没有传递闭包时，返回true表示两组区间标签都不能排除，可能可达.
+   *
+   * @param from 起点编号
+   * @param to   终点编号
+   * @return 是否可能可达
+   */
+  public boolean canReach(int from, int to) {
+    int cf = component[from];
+    int ct = component[to];
+    if (cf == ct) {
+      return true;
+    }
+    if (cf < ct) {
+      return false;
+    }
+    if (closure == null) {
+      return low1[cf] <= low1[ct] && post1[ct] <= post1[cf]
+          && low2[cf] <= low2[ct] && post2[ct] <= post2[cf];
+    }
+    return (closure[cf * words + (ct >>> 6)] & (1L << ct)) != 0;
+  }
+}
@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ReachabilityIndexTest {
+
+  @Test
+  void testComponentsAndReachability() throws IOException {
+    Map<String, Map<String, Integer>> graph = new HashMap<>();
+    graph.put("a", Map.of("b", 1));
+    graph.put("b", Map.of("c", 1));
+    graph.put("c", Map.of("a", 1, "d", 1));
+    graph.put("d", Map.of("e", 1));
+    graph.put("e", Map.of("d", 1));
+    graph.put("f", Map.of("e", 1));
+    OffHeapGraph g = OffHeapGraph.build(graph, null);
+    ReachabilityIndex reach = ReachabilityIndex.build(g);
+    assertEquals(3, reach.componentCount());
+    assertEquals(reach.component(g.id("a")), reach.component(g.id("c")));
+    assertTrue(reach.canReach(g.id("a"), g.id("e")));
+    assertTrue(reach.canReach(g.id("f"), g.id("d")));
+    assertFalse(reach.canReach(g.id("d"), g.id("a")));
+    assertFalse(reach.canReach(g.id("f"), g.id("a")));
+    assertFalse(reach.canReach(g.id("a"), g.id("f")));
+  }
+
+  @Test
+  void testDeepChainDoesNotOverflowStack() throws IOException {
+    Map<String, Map<String, Integer>> graph = new HashMap<>();
+    for (int i = 0; i < 200000; i++) {
+      graph.put("w" + i, Map.of("w" + (i + 1), 1));
+    }
+    OffHeapGraph g = OffHeapGraph.build(graph, null);
+    ReachabilityIndex reach = ReachabilityIndex.build(g);
+    assertEquals(200001, reach.componentCount());
+    assertTrue(reach.canReach(g.id("w0"), g.id("w200000")));
+    assertFalse(reach.canReach(g.id("w200000"), g.id("w0")));
+  }
+
+  @Test
+  void testIntervalLabels_DisjointChainsAboveClosureLimit() throws IOException {
+    Map<String, Map<String, Integer>> graph = new HashMap<>();
+    int length = 5000;
+    for (int i = 0; i < length - 1; i++) {
+      graph.put("a" + i, Map.of("a" + (i + 1), 1));
+      graph.put("b" + i, Map.of("b" + (i + 1), 1));
+    }
+    OffHeapGraph g = OffHeapGraph.build(graph, null);
+    ReachabilityIndex reach = ReachabilityIndex.build(g);
+    assertTrue(reach.componentCount() > ReachabilityIndex.CLOSURE_LIMIT);
+    for (int i = 0; i < length; i += 7) {
+      for (int j = 0; j < length; j += 11) {
+        assertFalse(reach.canReach(g.id("a" + i), g.id("b" + j)));
+        assertFalse(reach.canReach(g.id("b" + i), g.id("a" + j)));
+        assertEquals(i <= j, reach.canReach(g.id("a" + i), g.id("a" + j)));
+      }
+    }
+  }
+
+  @Test
+  void testIntervalLabels_NeverRejectReachablePairs() throws IOException {
+    Map<String, Map<String, Integer>> graph = new HashMap<>();
+    Random random = new Random(42);
+    int n = ReachabilityIndex.CLOSURE_LIMIT + 1000;
+    for (int i = 0; i < n; i++) {
+      Map<String, Integer> out = new HashMap<>();
+      for (int k = 0; k < 2 && i + 1 < n; k++) {
+        out.put("w" + (i + 1 + random.nextInt(Math.min(50, n - i - 1))), 1);
+      }
+      graph.put("w" + i, out);
+    }
+    OffHeapGraph g = OffHeapGraph.build(graph, null);
+    ReachabilityIndex reach = ReachabilityIndex.build(g);
+    assertEquals(n, reach.componentCount());
+    for (int source = 0; source < n; source += 997) {
+      BitSet reached = new BitSet(n);
+      Deque<Integer> queue = new ArrayDeque<>(List.of(source));
+      reached.set(source);
+      while (!queue.isEmpty()) {
+        int node = queue.poll();
+        for (int e = g.firstEdge(node); e < g.endEdge(node); e++) {
+          if (!reached.get(g.target(e))) {
+            reached.set(g.target(e));
+            queue.add(g.target(e));
+          }
+        }
+      }
+      for (int target = reached.nextSetBit(0); target >= 0;
+           target = reached.nextSetBit(target + 1)) {
+        assertTrue(reach.canReach(source, target));
+      }
+    }
+  }
+
+  @Test
+  void testCalcShortestPath_UnreachableRejected() {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("a", Map.of("b", 1));
+    graphProcessor.graph.put("b", Map.of("a", 1, "c", 1));
+    graphProcessor.graph.put("c", new HashMap<>());
+    graphProcessor.graph.put("d", Map.of("c", 1));
+    assertEquals("No path from a to d!", graphProcessor.calcShortestPath("a", "d"));
+    assertEquals("Shortest path: a -> b -> c (Length: 2)",
+        graphProcessor.calcShortestPath("a", "c"));
+  }
+
+  @Test
+  void testIndexRebuiltAfterDirectModification() {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("a", new HashMap<>(Map.of("b", 1)));
+    graphProcessor.graph.put("b", new HashMap<>());
+    assertEquals("No path from b to a!", graphProcessor.calcShortestPath("b", "a"));
+    assertEquals(List.of("b"), graphProcessor.topSuccessors("a", 2));
+    //单词数不变，只修改内层Map
+    graphProcessor.graph.get("b").put("a", 1);
+    graphProcessor.graph.get("a").merge("c", 2, Integer::sum);
+    assertEquals("Shortest path: b -> a (Length: 1)", graphProcessor.calcShortestPath("b", "a"));
+    assertEquals(List.of("c", "b"), graphProcessor.topSuccessors("a", 2));
+    graphProcessor.graph.get("b").clear();
+    assertEquals("No path from b to a!", graphProcessor.calcShortestPath("b", "a"));
+    //通过Entry和视图修改
+    for (Map.Entry<String, Integer> entry : graphProcessor.graph.get("a").entrySet()) {
+      if (entry.getKey().equals("b")) {
+        entry.setValue(9);
+      }
+    }
+    assertEquals(List.of("b", "c"), graphProcessor.topSuccessors("a", 2));
+    graphProcessor.graph.get("a").keySet().remove("b");
+    assertEquals(List.of("c"), graphProcessor.topSuccessors("a", 2));
+    graphProcessor.graph.values().removeIf(Map::isEmpty);
+    assertEquals("No b or a in the graph!", graphProcessor.calcShortestPath("b", "a"));
+  }
+}
@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReverseIndexTest {
+  private static final String CORPUS = "reverse_index_test.txt";
+  private GraphProcessor graphProcessor;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    Files.write(new File(CORPUS).toPath(),
+        "a b c a b d\nc d".getBytes(StandardCharsets.UTF_8));
+    graphProcessor = new GraphProcessor();
+    graphProcessor.readFileAndGenerateGraph(CORPUS);
+  }
+
+  @AfterEach
+  void tearDown() {
+    new File(CORPUS).delete();
+  }
+
+  @Test
+  void testPredecessorsBuiltDuringIngest() {
+    assertEquals(Set.of("a"), graphProcessor.predecessors("b"));
+    assertEquals(Set.of("b", "c"), graphProcessor.predecessors("d"));
+    assertEquals(2, graphProcessor.inDegree("d"));
+    assertEquals(0, graphProcessor.inDegree("e"));
+    assertEquals(Set.of("b", "d"), graphProcessor.predecessors("c"));
+  }
+
+  @Test
+  void testReverseIndexFollowsUpdates() {
+    long version = graphProcessor.graph.modCount();
+    graphProcessor.addEdge("e", "d");
+    assertEquals(3, graphProcessor.inDegree("d"));
+    assertEquals(Set.of("b", "c", "e"), graphProcessor.predecessors("d"));
+    graphProcessor.graph.get("b").remove("d");
+    graphProcessor.graph.get("c").put("d", 5);
+    assertEquals(Set.of("c", "e"), graphProcessor.predecessors("d"));
+    assertEquals(Map.of("c", 5, "e", 1, "b", 6, "a", 8), graphProcessor.wordsReaching("d", 10));
+    graphProcessor.graph.remove("e");
+    graphProcessor.graph.put("c", Map.of("a", 1));
+    assertEquals(0, graphProcessor.inDegree("d"));
+    assertEquals(Set.of("c"), graphProcessor.predecessors("a"));
+    //以上查询都不需要构建索引快照
+    assertTrue(graphProcessor.graph.modCount() > version);
+    assertTrue(!graphProcessor.statistics().heapBytes().containsKey("index snapshot dictionary"));
+  }
+
+  @Test
+  void testPredecessorsOfDirectlyFilledGraph() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("a", Map.of("b", 2));
+    graphProcessor.graph.put("c", Map.of("b", 1));
+    assertEquals(Set.of("a", "c"), graphProcessor.predecessors("b"));
+    assertEquals(2, graphProcessor.inDegree("b"));
+    assertEquals(Map.of("a", 2, "c", 1), graphProcessor.wordsReaching("b", 5));
+    //与topPredecessors使用同一个入边表
+    assertEquals(List.of("a", "c"), graphProcessor.topPredecessors("b", 2));
+  }
+
+  @Test
+  void testWordsReaching() {
+    assertEquals(Map.of("b", 1, "c", 1, "a", 3), graphProcessor.wordsReaching("d", 3));
+    assertEquals(Map.of("b", 1, "c", 1), graphProcessor.wordsReaching("d", 2));
+  }
+
+  @Test
+  void testWordsReaching_OffHeap() {
+    graphProcessor.useOffHeapStore(null);
+    assertEquals(Set.of("b", "c"), graphProcessor.predecessors("d"));
+    assertEquals(Map.of("b", 1, "c", 1, "a", 3), graphProcessor.wordsReaching("d", 3));
+  }
+}
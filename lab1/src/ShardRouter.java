@@ -0,0 +1,433 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片图的查询路由器.
+ * 图按单词哈希分布在多个ShardServer进程中，路由器通过本机套接字与各分片通信：
+ * 桥接词查询并行向word1所在分片取后继、向word2所在分片取前驱，一轮往返即可求交；
+ * 最短路径用按距离分层的分布式Dijkstra：每轮各分片报告最小暂定距离，
+ * 全部分片并行确定该距离上的单词，跨分片的松弛由路由器转发给目标单词所在的分片.
+ */
+public final class ShardRouter implements Closeable {
+  private final List<Connection> shards;
+  private final List<Process> processes;
+  private final ExecutorService pool;
+
+  /**
+   * 与一个分片的连接.
+   */
+  static final class Connection {
+    private final Socket socket;
+    private final BufferedReader reader;
+    private final BufferedWriter writer;
+
+    Connection(Socket socket) throws IOException {
+      this.socket = socket;
+      socket.setTcpNoDelay(true);
+      this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.UTF_8));
+      this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+          StandardCharsets.UTF_8));
+    }
+
+    //发送不需要回复的命令，暂存在缓冲区中
+    synchronized void send(String line) throws IOException {
+      writer.write(line);
+      writer.write('\n');
+    }
+
+    synchronized String call(String line) throws IOException {
+      send(line);
+      writer.flush();
+      return readLine();
+    }
+
+    //SETTLE：返回首行和随后的转发行
+    synchronized List<String> settle(int distance) throws IOException {
+      List<String> lines = new ArrayList<>();
+      lines.add(call("SETTLE " + distance));
+      int remote = Integer.parseInt(lines.get(0).split(" ")[1]);
+      for (int i = 0; i < remote; i++) {
+        lines.add(readLine());
+      }
+      return lines;
+    }
+
+    private String readLine() throws IOException {
+      String line = reader.readLine();
+      if (line == null) {
+        throw new IOException("Shard closed the connection");
+      }
+      return line;
+    }
+
+    void close() throws IOException {
+      try {
+        send("QUIT");
+        writer.flush();
+      } finally {
+        socket.close();
+      }
+    }
+  }
+
+  /**
+   * 对一个分片的操作.
+   */
+  private interface ShardCall<T> {
+    T call(int shard, Connection connection) throws IOException;
+  }
+
+  private ShardRouter(List<Connection> shards, List<Process> processes) {
+    this.shards = shards;
+    this.processes = processes;
+    this.pool = Executors.newFixedThreadPool(shards.size(), r -> {
+      Thread t = new Thread(r, "shard-router");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  /**
+   * 在本机启动shards个分片进程并连接.
+   *
+   * @param shards 分片数
+   * @return 路由器
+   * @throws IOException 启动或连接失败
+   */
+  public static ShardRouter launch(int shards) throws IOException {
+    if (shards < 1) {
+      throw new IllegalArgumentException("Shard count must be positive: " + shards);
+    }
+    String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    List<Process> processes = new ArrayList<>();
+    List<Connection> connections = new ArrayList<>();
+    try {
+      //先全部启动，各进程并行初始化
+      for (int i = 0; i < shards; i++) {
+        processes.add(new ProcessBuilder(java, "-cp", classPath(), "ShardServer",
+            Integer.toString(i), Integer.toString(shards))
+            .redirectError(ProcessBuilder.Redirect.INHERIT).start());
+      }
+      for (int i = 0; i < shards; i++) {
+        String ready = new BufferedReader(new InputStreamReader(
+            processes.get(i).getInputStream(), StandardCharsets.UTF_8)).readLine();
+        if (ready == null || !ready.startsWith("READY ")) {
+          throw new IOException("Shard " + i + " failed to start");
+        }
+        int port = Integer.parseInt(ready.substring("READY ".length()));
+        connections.add(new Connection(new Socket(InetAddress.getLoopbackAddress(), port)));
+      }
+    } catch (IOException e) {
+      for (Process process : processes) {
+        process.destroyForcibly();
+      }
+      throw e;
+    }
+    return new ShardRouter(connections, processes);
+  }
+
+  /**
+   * 连接已经启动的分片，第i个地址为第i片.
+   *
+   * @param addresses 分片地址
+   * @return 路由器
+   * @throws IOException 连接失败
+   */
+  public static ShardRouter connect(List<InetSocketAddress> addresses) throws IOException {
+    List<Connection> connections = new ArrayList<>();
+    for (InetSocketAddress address : addresses) {
+      connections.add(new Connection(new Socket(address.getAddress(), address.getPort())));
+    }
+    return new ShardRouter(connections, new ArrayList<>());
+  }
+
+  //分片进程的类路径：本类所在位置加上当前类路径
+  private static String classPath() throws IOException {
+    try {
+      return Paths.get(ShardServer.class.getProtectionDomain().getCodeSource().getLocation()
+          .toURI()) + File.pathSeparator + System.getProperty("java.class.path");
+    } catch (URISyntaxException e) {
+      throw new IOException(e);
+    }
+  }
+
+  public int shardCount() {
+    return shards.size();
+  }
+
+  private Connection shard(String word) {
+    return shards.get(ShardServer.shardOf(word, shards.size()));
+  }
+
+  //在所有分片上并行执行
+  private <T> List<T> onAll(ShardCall<T> call) throws IOException {
+    List<Future<T>> futures = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      futures.add(pool.submit(() -> call.call(shard, shards.get(shard))));
+    }
+    List<T> results = new ArrayList<>();
+    for (Future<T> future : futures) {
+      results.add(await(future));
+    }
+    return results;
+  }
+
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for shard");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * 把处理器中的全部边分发到各分片：出边发往起点所在分片，入边发往终点所在分片.
+   *
+   * @param processor 图
+   * @throws IOException 传输失败
+   */
+  public synchronized void load(GraphProcessor processor) throws IOException {
+    try {
+      processor.forEachEdge((from, to, weight) -> {
+        try {
+          sendEdge(from, to, weight);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    onAll((shard, connection) -> connection.call("SYNC"));
+  }
+
+  /**
+   * 读入文件或目录下的所有文件，把边直接分发到各分片，路由器进程中不构建整张图.
+   * 分词流水线产生的每批单词在调用线程中转为边，同一批中重复的边合并后发送，边只在发送缓冲区中暂存，
+   * 内存占用与语料大小无关.
+   *
+   * @param root        文件或目录
+   * @param parallelism 分词线程数
+   * @throws IOException 遍历目录或传输失败
+   */
+  public synchronized void load(Path root, int parallelism) throws IOException {
+    IngestPipeline pipeline = new IngestPipeline(parallelism,
+        IngestPipeline.DEFAULT_QUEUE_CAPACITY, IngestPipeline.DEFAULT_BATCH_SIZE, 1,
+        (file, words, completed, total) -> {
+        });
+    try {
+      pipeline.run(root, batch -> {
+        Map<String, Map<String, Integer>> edges = new HashMap<>();
+        //接上同一文件中前一批的最后一个单词
+        String previous = batch.carry.length == 0 ? null : batch.carry[batch.carry.length - 1];
+        for (int i = 0; i < batch.length; i++) {
+          if (previous != null) {
+            edges.computeIfAbsent(previous, k -> new HashMap<>())
+                .merge(batch.words[i], 1, Integer::sum);
+          }
+          previous = batch.words[i];
+        }
+        try {
+          for (Map.Entry<String, Map<String, Integer>> row : edges.entrySet()) {
+            for (Map.Entry<String, Integer> edge : row.getValue().entrySet()) {
+              sendEdge(row.getKey(), edge.getKey(), edge.getValue());
+            }
+          }
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    onAll((shard, connection) -> connection.call("SYNC"));
+  }
+
+  //出边发往起点所在分片，入边发往终点所在分片
+  private void sendEdge(String from, String to, int weight) throws IOException {
+    shard(from).send("OUT " + from + " " + to + " " + weight);
+    shard(to).send("IN " + to + " " + from + " " + weight);
+  }
+
+  //协议以空格分隔字段，含空白的单词不可能在图中
+  private static boolean isWord(String word) {
+    return !word.isEmpty() && word.chars().noneMatch(Character::isWhitespace);
+  }
+
+  //解析SUCC、PRED的回复，首项为该单词是否为起点，其余为相邻单词及权值
+  private static Map<String, Integer> parseNeighbors(String reply) {
+    String[] parts = reply.split(" ");
+    Map<String, Integer> neighbors = new LinkedHashMap<>();
+    for (int i = 1; i + 1 < parts.length; i += 2) {
+      neighbors.put(parts[i], Integer.parseInt(parts[i + 1]));
+    }
+    return neighbors;
+  }
+
+  /**
+   * 查询桥接词.
+   *
+   * @param word1 单词1
+   * @param word2 单词2
+   * @return 与GraphProcessor.queryBridgeWords格式相同的结果
+   * @throws IOException 通信失败
+   */
+  public synchronized String queryBridgeWords(String word1, String word2) throws IOException {
+    if (!isWord(word1) || !isWord(word2)) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    Future<String> successors = pool.submit(() -> shard(word1).call("SUCC " + word1));
+    Future<String> predecessors = pool.submit(() -> shard(word2).call("PRED " + word2));
+    String succ = await(successors);
+    String pred = await(predecessors);
+    if (!succ.startsWith("1") || !pred.startsWith("1")) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    Map<String, Integer> before = parseNeighbors(pred);
+    List<String> bridgeWords = new ArrayList<>();
+    for (String word : parseNeighbors(succ).keySet()) {
+      if (before.containsKey(word)) {
+        bridgeWords.add(word);
+      }
+    }
+    if (bridgeWords.isEmpty()) {
+      return "No bridge words from " + word1 + " to " + word2 + "!";
+    }
+    return "The bridge words from " + word1 + " to " + word2 + " are: "
+        + String.join(", ", bridgeWords) + ".";
+  }
+
+  /**
+   * 用分布式Dijkstra计算最短路径，不生成图片.
+   *
+   * @param word1 起点
+   * @param word2 终点
+   * @return 与GraphProcessor.calcShortestPath格式相同的结果
+   * @throws IOException 通信失败
+   */
+  public synchronized String calcShortestPath(String word1, String word2) throws IOException {
+    if (!isWord(word1) || !isWord(word2)) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    Future<String> has1 = pool.submit(() -> shard(word1).call("HAS " + word1));
+    Future<String> has2 = pool.submit(() -> shard(word2).call("HAS " + word2));
+    if (!"1".equals(await(has1)) || !"1".equals(await(has2))) {
+      return "No " + word1 + " or " + word2 + " in the graph!";
+    }
+    int source = ShardServer.shardOf(word1, shards.size());
+    List<Integer> mins = onAll((shard, connection) -> {
+      connection.send("RESET " + word2);
+      if (shard == source) {
+        connection.send("RELAX " + word1 + " 0 -");
+      }
+      return Integer.parseInt(connection.call("MIN"));
+    });
+    int length;
+    while (true) {
+      int distance = Integer.MAX_VALUE;
+      for (int min : mins) {
+        if (min >= 0) {
+          distance = Math.min(distance, min);
+        }
+      }
+      if (distance == Integer.MAX_VALUE) {
+        return "No path from " + word1 + " to " + word2 + "!";
+      }
+      int level = distance;
+      List<List<String>> settled = onAll((shard, connection) -> connection.settle(level));
+      //按目标单词所在分片分组转发
+      List<List<String>> outbox = new ArrayList<>();
+      boolean found = false;
+      for (int i = 0; i < shards.size(); i++) {
+        outbox.add(new ArrayList<>());
+      }
+      for (List<String> lines : settled) {
+        found |= lines.get(0).startsWith("1");
+        for (String line : lines.subList(1, lines.size())) {
+          outbox.get(ShardServer.shardOf(line.substring(0, line.indexOf(' ')), shards.size()))
+              .add(line);
+        }
+      }
+      if (found) {
+        length = distance;
+        break;
+      }
+      mins = onAll((shard, connection) -> {
+        for (String line : outbox.get(shard)) {
+          connection.send("RELAX " + line);
+        }
+        return Integer.parseInt(connection.call("MIN"));
+      });
+    }
+    //从终点沿前驱回到起点
+    List<String> path = new LinkedList<>();
+    for (String word = word2; !"-".equals(word); word = shard(word).call("PREV " + word)) {
+      path.add(0, word);
+    }
+    return "Shortest path: " + String.join(" -> ", path) + " (Length: " + length + ")";
+  }
+
+  /**
+   * 关闭连接并等待分片进程退出.
+   *
+   * @throws IOException 关闭连接失败
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    pool.shutdownNow();
+    IOException error = null;
+    for (Connection connection : shards) {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        error = e;
+      }
+    }
+    for (Process process : processes) {
+      try {
+        if (!process.waitFor(5, TimeUnit.SECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        process.destroyForcibly();
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (error != null) {
+      throw error;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardRouterTest {
+  private ShardRouter router;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    GraphProcessor graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("the", Map.of("quick", 1, "lazy", 3, "old", 2));
+    graphProcessor.graph.put("quick", Map.of("dog", 5, "fox", 1));
+    graphProcessor.graph.put("lazy", Map.of("dog", 1));
+    graphProcessor.graph.put("old", Map.of("dog", 2));
+    graphProcessor.graph.put("dog", Map.of("the", 4));
+    graphProcessor.graph.put("fox", Map.of("jumps", 1));
+    graphProcessor.graph.put("jumps", Map.of("dog", 1));
+    graphProcessor.graph.put("cat", Map.of("sat", 1));
+    router = graphProcessor.distribute(2);
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    router.close();
+  }
+
+  @Test
+  void testQueryBridgeWords() throws IOException {
+    assertEquals(2, router.shardCount());
+    assertEquals("The bridge words from quick to jumps are: fox.",
+        router.queryBridgeWords("quick", "jumps"));
+    String bridges = router.queryBridgeWords("the", "dog");
+    assertTrue(bridges.startsWith("The bridge words from the to dog are: "), bridges);
+    for (String word : new String[] {"quick", "lazy", "old"}) {
+      assertTrue(bridges.contains(word), bridges);
+    }
+    assertEquals("No bridge words from dog to jumps!", router.queryBridgeWords("dog", "jumps"));
+    assertEquals("No the or cow in the graph!", router.queryBridgeWords("the", "cow"));
+    assertEquals("No the or sat in the graph!", router.queryBridgeWords("the", "sat"));
+  }
+
+  @Test
+  void testCalcShortestPath() throws IOException {
+    assertEquals("Shortest path: the -> quick -> fox -> jumps (Length: 3)",
+        router.calcShortestPath("the", "jumps"));
+    assertTrue(router.calcShortestPath("the", "dog").endsWith("(Length: 4)"));
+    assertEquals("Shortest path: dog -> the -> quick -> fox (Length: 6)",
+        router.calcShortestPath("dog", "fox"));
+    assertEquals("Shortest path: the (Length: 0)", router.calcShortestPath("the", "the"));
+    assertEquals("No path from the to cat!", router.calcShortestPath("the", "cat"));
+    assertEquals("No the or cow in the graph!", router.calcShortestPath("the", "cow"));
+  }
+
+  @Test
+  void testLoadStreamsFilesToShards(@TempDir Path dir) throws IOException {
+    Files.write(dir.resolve("a.txt"),
+        "The quick fox jumps. The lazy dog".getBytes(StandardCharsets.UTF_8));
+    Files.write(dir.resolve("b.txt"), "quick fox sat".getBytes(StandardCharsets.UTF_8));
+    GraphProcessor graphProcessor = new GraphProcessor();
+    graphProcessor.readFilesAndGenerateGraph(dir.toString(), 1,
+        (file, words, completed, total) -> {
+        });
+    try (ShardRouter streamed = ShardRouter.launch(3)) {
+      streamed.load(dir, 2);
+      for (String[] pair : new String[][] {{"the", "fox"}, {"quick", "jumps"},
+          {"the", "dog"}, {"fox", "sat"}, {"dog", "the"}, {"sat", "fox"}}) {
+        assertEquals(graphProcessor.queryBridgeWords(pair[0], pair[1]),
+            streamed.queryBridgeWords(pair[0], pair[1]));
+        assertEquals(graphProcessor.calcShortestPath(pair[0], pair[1]),
+            streamed.calcShortestPath(pair[0], pair[1]));
+      }
+    }
+  }
+}
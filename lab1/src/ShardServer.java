@@ -0,0 +1,216 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 分片工作进程.
+ * 图按单词的哈希分成count片，第index片拥有哈希落在本片的单词：保存它们的出边、入边，
+ * 以及分布式Dijkstra中它们的距离和前驱.
+ * 启动后在本机回环地址上监听，向标准输出打印"READY 端口"，只接受一个连接，连接关闭后退出.
+ * 与ShardRouter按行通信，字段以空格分隔：
+ * OUT、IN、RESET、RELAX不回复；SYNC、HAS、SUCC、PRED、MIN、SETTLE、PREV各回复一行
+ * （SETTLE之后还有若干行）.
+ */
+public final class ShardServer {
+  private final int index;
+  private final int count;
+  private final Map<String, Map<String, Integer>> out = new HashMap<>();
+  private final Map<String, Map<String, Integer>> in = new HashMap<>();
+  //一次最短路径查询的状态：本片单词的暂定距离、前驱、已确定的单词，以及按距离分组的待处理单词
+  private final Map<String, Integer> dist = new HashMap<>();
+  private final Map<String, String> prev = new HashMap<>();
+  private final Set<String> settled = new HashSet<>();
+  private final TreeMap<Integer, List<String>> frontier = new TreeMap<>();
+  private String target;
+
+  ShardServer(int index, int count) {
+    this.index = index;
+    this.count = count;
+  }
+
+  /**
+   * 单词所在的分片.
+   *
+   * @param word   单词
+   * @param shards 分片数
+   * @return 分片下标
+   */
+  static int shardOf(String word, int shards) {
+    return Math.floorMod(word.hashCode(), shards);
+  }
+
+  /**
+   * main.
+   *
+   * @param args 分片下标、分片数，可选的监听端口（默认由系统分配）
+   * @throws IOException 监听或通信失败
+   */
+  public static void main(String[] args) throws IOException {
+    int index = Integer.parseInt(args[0]);
+    int count = Integer.parseInt(args[1]);
+    int port = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+    try (ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+      System.out.println("READY " + server.getLocalPort());
+      System.out.flush();
+      try (Socket socket = server.accept()) {
+        socket.setTcpNoDelay(true);
+        new ShardServer(index, count).serve(
+            new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8)),
+            new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                StandardCharsets.UTF_8)));
+      }
+    }
+  }
+
+  /**
+   * 逐行处理命令，直到QUIT或连接关闭.
+   *
+   * @param reader 命令
+   * @param writer 回复
+   * @throws IOException 通信失败
+   */
+  void serve(BufferedReader reader, Writer writer) throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] parts = line.split(" ");
+      switch (parts[0]) {
+        case "OUT":
+          out.computeIfAbsent(parts[1], k -> new HashMap<>())
+              .merge(parts[2], Integer.parseInt(parts[3]), Integer::sum);
+          break;
+        case "IN":
+          in.computeIfAbsent(parts[1], k -> new HashMap<>())
+              .merge(parts[2], Integer.parseInt(parts[3]), Integer::sum);
+          break;
+        case "SYNC":
+          reply(writer, "OK");
+          break;
+        case "HAS":
+          reply(writer, out.containsKey(parts[1]) ? "1" : "0");
+          break;
+        case "SUCC":
+          reply(writer, neighbors(parts[1], out));
+          break;
+        case "PRED":
+          reply(writer, neighbors(parts[1], in));
+          break;
+        case "RESET":
+          reset(parts[1]);
+          break;
+        case "RELAX":
+          relax(parts[1], Integer.parseInt(parts[2]), parts[3]);
+          break;
+        case "MIN":
+          reply(writer, Integer.toString(min()));
+          break;
+        case "SETTLE":
+          settle(Integer.parseInt(parts[1]), writer);
+          break;
+        case "PREV":
+          reply(writer, prev.getOrDefault(parts[1], "-"));
+          break;
+        case "QUIT":
+          return;
+        default:
+          reply(writer, "ERR unknown command " + parts[0]);
+      }
+    }
+  }
+
+  private static void reply(Writer writer, String line) throws IOException {
+    writer.write(line);
+    writer.write('\n');
+    writer.flush();
+  }
+
+  //回复"是否为起点 单词 权值 单词 权值..."
+  private String neighbors(String word, Map<String, Map<String, Integer>> edges) {
+    StringBuilder sb = new StringBuilder(out.containsKey(word) ? "1" : "0");
+    for (Map.Entry<String, Integer> entry
+        : edges.getOrDefault(word, Collections.emptyMap()).entrySet()) {
+      sb.append(' ').append(entry.getKey()).append(' ').append(entry.getValue());
+    }
+    return sb.toString();
+  }
+
+  private void reset(String target) {
+    this.target = target;
+    dist.clear();
+    prev.clear();
+    settled.clear();
+    frontier.clear();
+  }
+
+  //prev为"-"表示起点
+  private void relax(String word, int distance, String from) {
+    if (settled.contains(word) || distance >= dist.getOrDefault(word, Integer.MAX_VALUE)) {
+      return;
+    }
+    dist.put(word, distance);
+    prev.put(word, from);
+    frontier.computeIfAbsent(distance, k -> new ArrayList<>()).add(word);
+  }
+
+  //本片尚未确定的单词中的最小暂定距离，没有时返回-1；顺带丢弃过期的项
+  private int min() {
+    while (!frontier.isEmpty()) {
+      Map.Entry<Integer, List<String>> first = frontier.firstEntry();
+      for (String word : first.getValue()) {
+        if (!settled.contains(word) && dist.get(word).equals(first.getKey())) {
+          return first.getKey();
+        }
+      }
+      frontier.pollFirstEntry();
+    }
+    return -1;
+  }
+
+  /**
+   * 确定本片所有暂定距离为distance的单词，并松弛它们的出边.
+   * 终点在本片的边直接松弛，其余的边回复给路由器转发；权值至少为1，新距离都大于distance.
+   * 回复"是否确定了终点 转发条数"，随后每行一条"终点 距离 起点".
+   */
+  private void settle(int distance, Writer writer) throws IOException {
+    List<String> level = frontier.remove(distance);
+    List<String> remote = new ArrayList<>();
+    boolean found = false;
+    for (String word : level == null ? Collections.<String>emptyList() : level) {
+      if (settled.contains(word) || dist.get(word) != distance) {
+        continue;
+      }
+      settled.add(word);
+      found |= word.equals(target);
+      for (Map.Entry<String, Integer> entry
+          : out.getOrDefault(word, Collections.emptyMap()).entrySet()) {
+        int next = distance + entry.getValue();
+        if (shardOf(entry.getKey(), count) == index) {
+          relax(entry.getKey(), next, word);
+        } else {
+          remote.add(entry.getKey() + " " + next + " " + word);
+        }
+      }
+    }
+    writer.write((found ? "1 " : "0 ") + remote.size() + "\n");
+    for (String line : remote) {
+      writer.write(line);
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+}
@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TopKQueryTest {
+  private GraphProcessor graphProcessor;
+
+  @BeforeEach
+  void setUp() {
+    graphProcessor = new GraphProcessor();
+    graphProcessor.graph.put("the", Map.of("quick", 1, "lazy", 3, "old", 2));
+    graphProcessor.graph.put("quick", Map.of("dog", 5));
+    graphProcessor.graph.put("lazy", Map.of("dog", 1));
+    graphProcessor.graph.put("old", Map.of("dog", 2));
+    graphProcessor.graph.put("dog", Map.of("the", 4));
+  }
+
+  @Test
+  void testTopSuccessors() {
+    assertEquals(List.of("lazy", "old"), graphProcessor.topSuccessors("the", 2));
+    assertEquals(List.of("the"), graphProcessor.topSuccessors("dog", 5));
+    assertEquals(List.of(), graphProcessor.topSuccessors("cat", 2));
+  }
+
+  @Test
+  void testTopPredecessors() {
+    assertEquals(List.of("quick", "old", "lazy"), graphProcessor.topPredecessors("dog", 3));
+  }
+
+  @Test
+  void testPredictNextWords() {
+    assertEquals("The most likely words after the are: lazy (50.00%), old (33.33%).",
+        graphProcessor.predictNextWords("the", 2));
+    assertEquals("No words after cat in the graph!", graphProcessor.predictNextWords("cat", 2));
+  }
+
+  @Test
+  void testRankBridgeWords() {
+    assertEquals(List.of("quick", "old"), graphProcessor.rankBridgeWords("the", "dog", 2));
+    assertEquals(List.of("quick", "old", "lazy"),
+        graphProcessor.rankBridgeWords("the", "dog", 10));
+  }
+}
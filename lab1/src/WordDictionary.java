@@ -0,0 +1,219 @@
+import java.util.Arrays;
+
+/**
+ * 单词字典：单词连续存放在一个char数组中，用开放定址哈希表按内容查找编号.
+ * 可以直接用CharSequence、char数组或byte数组（ASCII）的片段查找，不必先创建String；
+ * 只有第一次加入的单词才创建String.
+ * 单词按加入顺序编号，从0开始；不支持删除.
+ */
+public final class WordDictionary {
+  private char[] arena;
+  private int arenaLength;
+  //第id个单词在arena中的起点，starts[size]为arena已用长度
+  private int[] starts;
+  private int[] hashes;
+  private String[] strings;
+  //哈希槽中存放id + 1，0表示空
+  private int[] table;
+  private int size;
+
+  public WordDictionary() {
+    this(1024);
+  }
+
+  /**
+   * 创建字典.
+   *
+   * @param expected 预计单词数
+   */
+  public WordDictionary(int expected) {
+    int capacity = Math.max(expected, 16);
+    arena = new char[capacity * 8];
+    starts = new int[capacity + 1];
+    hashes = new int[capacity];
+    strings = new String[capacity];
+    table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public String word(int id) {
+    return strings[id];
+  }
+
+  /**
+   * 估计占用的堆内存字节数，不含单词String本身.
+   *
+   * @return 字节数
+   */
+  public long estimatedBytes() {
+    return GraphStatistics.array(arena.length, Character.BYTES)
+        + GraphStatistics.array(starts.length, Integer.BYTES)
+        + GraphStatistics.array(hashes.length, Integer.BYTES)
+        + GraphStatistics.array(strings.length, GraphStatistics.REFERENCE)
+        + GraphStatistics.array(table.length, Integer.BYTES);
+  }
+
+  private static int mix(int hash) {
+    return hash * 0x9E3779B9 ^ (hash >>> 16);
+  }
+
+  public int find(CharSequence s) {
+    return find(s, 0, s.length());
+  }
+
+  /**
+   * 按CharSequence片段查找单词编号.
+   *
+   * @param s     字符序列
+   * @param start 起点（含）
+   * @param end   终点（不含）
+   * @return 编号，不存在返回-1
+   */
+  public int find(CharSequence s, int start, int end) {
+    return table[slotOf(hash(s, start, end), s, start, end)] - 1;
+  }
+
+  /**
+   * 按char数组片段查找单词编号.
+   *
+   * @param chars 字符数组
+   * @param start 起点（含）
+   * @param end   终点（不含）
+   * @return 编号，不存在返回-1
+   */
+  public int find(char[] chars, int start, int end) {
+    return table[slotOf(hash(chars, start, end), chars, start, end)] - 1;
+  }
+
+  /**
+   * 按ASCII字节片段查找单词编号.
+   *
+   * @param bytes 字节数组
+   * @param start 起点（含）
+   * @param end   终点（不含）
+   * @return 编号，不存在返回-1
+   */
+  public int find(byte[] bytes, int start, int end) {
+    return table[slotOf(hash(bytes, start, end), bytes, start, end)] - 1;
+  }
+
+  /**
+   * 查找单词编号，不存在时加入字典；传入String时字典直接引用该对象.
+   *
+   * @param s 单词
+   * @return 编号
+   */
+  public int intern(CharSequence s) {
+    int length = s.length();
+    reserve(length);
+    for (int i = 0; i < length; i++) {
+      arena[arenaLength + i] = s.charAt(i);
+    }
+    return add(arena, arenaLength, arenaLength + length, s);
+  }
+
+  /**
+   * 查找单词编号，不存在时加入字典.
+   *
+   * @param chars 字符数组
+   * @param start 起点（含）
+   * @param end   终点（不含）
+   * @return 编号
+   */
+  public int intern(char[] chars, int start, int end) {
+    return add(chars, start, end, null);
+  }
+
+  //arena末尾至少留出length个空位
+  private void reserve(int length) {
+    if (arenaLength + length > arena.length) {
+      arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+    }
+  }
+
+  //片段已在字典中时返回其编号，否则加入；word为null时由片段创建String
+  private int add(char[] chars, int start, int end, CharSequence word) {
+    int hash = hash(chars, start, end);
+    int slot = slotOf(hash, chars, start, end);
+    if (table[slot] != 0) {
+      return table[slot] - 1;
+    }
+    int length = end - start;
+    if (size == hashes.length) {
+      int capacity = size * 2;
+      starts = Arrays.copyOf(starts, capacity + 1);
+      hashes = Arrays.copyOf(hashes, capacity);
+      strings = Arrays.copyOf(strings, capacity);
+    }
+    reserve(length);
+    String string = word == null ? new String(chars, start, length) : word.toString();
+    System.arraycopy(chars, start, arena, arenaLength, length);
+    int id = size++;
+    hashes[id] = hash;
+    strings[id] = string;
+    arenaLength += length;
+    starts[size] = arenaLength;
+    table[slot] = id + 1;
+    if (size * 2 > table.length) {
+      rehash();
+    }
+    return id;
+  }
+
+  //片段的第i个字符；source为char数组、ASCII字节数组或CharSequence
+  private static char charAt(Object source, int i) {
+    if (source instanceof char[]) {
+      return ((char[]) source)[i];
+    }
+    if (source instanceof byte[]) {
+      return (char) (((byte[]) source)[i] & 0xff);
+    }
+    return ((CharSequence) source).charAt(i);
+  }
+
+  private static int hash(Object source, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + charAt(source, i);
+    }
+    return hash;
+  }
+
+  //找到内容与片段相同的单词所在的槽，或应插入的空槽
+  private int slotOf(int hash, Object source, int start, int end) {
+    int mask = table.length - 1;
+    int slot = mix(hash) & mask;
+    while (table[slot] != 0 && !matches(table[slot] - 1, hash, source, start, end)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  //逐字符比较arena中的第id个单词与片段
+  private boolean matches(int id, int hash, Object source, int start, int end) {
+    if (hashes[id] != hash || starts[id + 1] - starts[id] != end - start) {
+      return false;
+    }
+    for (int i = starts[id], j = start; i < starts[id + 1]; i++, j++) {
+      if (arena[i] != charAt(source, j)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rehash() {
+    table = new int[table.length * 2];
+    int mask = table.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = mix(hashes[id]) & mask;
+      while (table[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      table[slot] = id + 1;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+class WordDictionaryTest {
+  @Test
+  void testInternAndFindBySlice() {
+    WordDictionary dictionary = new WordDictionary(4);
+    String the = "the";
+    assertEquals(0, dictionary.intern(the));
+    assertSame(the, dictionary.word(0));
+    char[] chars = "xxdogxx".toCharArray();
+    assertEquals(1, dictionary.intern(chars, 2, 5));
+    assertEquals(1, dictionary.intern(new StringBuilder("dog")));
+    assertEquals(0, dictionary.find("bathe", 2, 5));
+    assertEquals(1, dictionary.find(chars, 2, 5));
+    assertEquals(1, dictionary.find("a dog!".getBytes(StandardCharsets.US_ASCII), 2, 5));
+    assertEquals(-1, dictionary.find("do"));
+    assertEquals(-1, dictionary.find(chars, 0, 7));
+    assertEquals(2, dictionary.size());
+  }
+
+  @Test
+  void testGrowth() {
+    WordDictionary dictionary = new WordDictionary(1);
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(i, dictionary.intern("w" + i));
+    }
+    for (int i = 0; i < 5000; i++) {
+      assertEquals(i, dictionary.find("w" + i));
+      assertEquals("w" + i, dictionary.word(i));
+    }
+  }
+
+  @Test
+  void testScannerSplitsAndFoldsCase() {
+    String text = "Hello, World!  the\tQUICK brown-fox's 42 jumps\n\nover... \"the\" dog";
+    List<String> expected = List.of("hello", "world", "the", "quick", "brown", "fox", "s",
+        "jumps", "over", "the", "dog");
+    //分段送入，单词跨段也应完整
+    char[] chars = text.toCharArray();
+    for (int chunk = 1; chunk <= chars.length; chunk += 7) {
+      WordDictionary dictionary = new WordDictionary();
+      WordScanner scanner = new WordScanner(dictionary, true);
+      List<String> actual = new ArrayList<>();
+      for (int i = 0; i < chars.length; i += chunk) {
+        scanner.feed(chars, i, Math.min(chars.length, i + chunk),
+            id -> actual.add(dictionary.word(id)));
+      }
+      scanner.finish(id -> actual.add(dictionary.word(id)));
+      assertEquals(expected, actual);
+      assertSame(actual.get(2), actual.get(9));
+    }
+  }
+
+  @Test
+  void testCaseFoldingIgnoresDefaultLocale() {
+    Locale previous = Locale.getDefault();
+    Locale.setDefault(Locale.forLanguageTag("tr"));
+    try {
+      WordDictionary dictionary = new WordDictionary();
+      WordScanner scanner = new WordScanner(dictionary, true);
+      List<String> actual = new ArrayList<>();
+      //土耳其语区域下String.toLowerCase会把I转为无点的ı，逐字符转换不受影响
+      scanner.feed("\u0130stanbul IZMIR \u212Aelvin", id -> actual.add(dictionary.word(id)));
+      scanner.finish(id -> actual.add(dictionary.word(id)));
+      assertEquals(List.of("istanbul", "izmir", "kelvin"), actual);
+    } finally {
+      Locale.setDefault(previous);
+    }
+  }
+
+  @Test
+  void testLookupScannerDoesNotIntern() {
+    WordDictionary dictionary = new WordDictionary();
+    dictionary.intern("known");
+    WordScanner scanner = new WordScanner(dictionary, false);
+    List<Integer> ids = new ArrayList<>();
+    scanner.feed("Known unknown", ids::add);
+    scanner.finish(ids::add);
+    assertEquals(Arrays.asList(0, -1), ids);
+    assertEquals(1, dictionary.size());
+  }
+}
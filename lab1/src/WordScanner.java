@@ -0,0 +1,96 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 分词器：逐字符扫描，每个字符用Character.toLowerCase转为小写（与默认区域设置无关，如İ转为i），
+ * 之后连续的a-z字母组成一个单词，其余字符都是分隔符；读入文件、并行读入和生成新文本都用它分词.
+ * 单词写入可复用的char缓冲区，再在字典中查找或加入，把编号交给调用者；
+ * 因此已出现过的单词不创建任何对象，输入可以分多段送入，跨段的单词会被正确拼接.
+ */
+final class WordScanner {
+  private final WordDictionary dictionary;
+  //true时把新单词加入字典，false时只查找，不在字典中的单词编号为-1
+  private final boolean intern;
+  private char[] word = new char[32];
+  private int length;
+
+  WordScanner(WordDictionary dictionary, boolean intern) {
+    this.dictionary = dictionary;
+    this.intern = intern;
+  }
+
+  WordDictionary dictionary() {
+    return dictionary;
+  }
+
+  /**
+   * 扫描一段字符.
+   *
+   * @param chars 字符数组
+   * @param start 起点（含）
+   * @param end   终点（不含）
+   * @param sink  接收单词编号
+   */
+  void feed(char[] chars, int start, int end, IntConsumer sink) {
+    for (int i = start; i < end; i++) {
+      push(chars[i], sink);
+    }
+  }
+
+  void feed(CharSequence text, IntConsumer sink) {
+    for (int i = 0; i < text.length(); i++) {
+      push(text.charAt(i), sink);
+    }
+  }
+
+  /**
+   * 读完reader中的全部字符并结束最后一个单词.
+   *
+   * @param reader 输入
+   * @param sink   接收单词编号
+   * @throws IOException 读取失败
+   */
+  void scan(Reader reader, IntConsumer sink) throws IOException {
+    char[] buffer = new char[8192];
+    int n;
+    while ((n = reader.read(buffer)) > 0) {
+      feed(buffer, 0, n, sink);
+    }
+    finish(sink);
+  }
+
+  /**
+   * 当前单词的文本，只在sink的回调中有效；用于查找模式下取得不在字典中的单词.
+   *
+   * @return 单词
+   */
+  String word() {
+    return new String(word, 0, length);
+  }
+
+  /**
+   * 结束当前单词，输入结束时调用.
+   *
+   * @param sink 接收单词编号
+   */
+  void finish(IntConsumer sink) {
+    if (length > 0) {
+      sink.accept(intern ? dictionary.intern(word, 0, length) : dictionary.find(word, 0, length));
+      length = 0;
+    }
+  }
+
+  private void push(char c, IntConsumer sink) {
+    char lower = Character.toLowerCase(c);
+    if (lower >= 'a' && lower <= 'z') {
+      if (length == word.length) {
+        word = Arrays.copyOf(word, length * 2);
+      }
+      word[length++] = lower;
+    } else {
+      finish(sink);
+    }
+  }
+}